@@ -31,6 +31,9 @@ public class Adapter extends RecyclerView.Adapter<Adapter.ViewHolder> {
     private onItemClick clickCb;
     private boolean is3D;
 
+    /**所有 Adapter 创建 ViewHolder（inflate 卡片布局）的总次数 */
+    private static int sInflateCount = 0;
+
     public Adapter(Context c, boolean is3D) {
         mContext = c;
         this.is3D = is3D;
@@ -51,6 +54,7 @@ public class Adapter extends RecyclerView.Adapter<Adapter.ViewHolder> {
         int layout = R.layout.layout_item;
         if (is3D) layout = R.layout.layout_item_mirror;
         View v = LayoutInflater.from(mContext).inflate(layout, parent, false);
+        sInflateCount++;
         ViewHolder viewHolder =  new ViewHolder(v);
         return viewHolder;
     }
@@ -73,6 +77,10 @@ public class Adapter extends RecyclerView.Adapter<Adapter.ViewHolder> {
         Log.i(KotlinUtilsKt.TAG, " onBindViewHolder , position: " + position);
     }
 
+    public static int getInflateCount() {
+        return sInflateCount;
+    }
+
     @Override
     public int getItemCount() {
         return mColors.length;
@@ -4,7 +4,6 @@ import android.os.Bundle;
 import androidx.appcompat.app.AppCompatActivity;
 import android.widget.TextView;
 
-import recycler.coverflow.CoverFlowLayoutManger;
 import recycler.coverflow.CoverFlowLayoutManger3;
 import recycler.coverflow.RecyclerCoverFlow;
 
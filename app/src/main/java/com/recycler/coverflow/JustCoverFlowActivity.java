@@ -13,11 +13,23 @@ import android.widget.TextView;
 
 import com.recycler.coverflow.viewpager.KotlinUtilsKt;
 
-import recycler.coverflow.CoverFlowLayoutManger;
 import recycler.coverflow.CoverFlowLayoutManger3;
+import recycler.coverflow.CoverFlowSnapHelper;
+import recycler.coverflow.CoverFlowStats;
 import recycler.coverflow.RecyclerCoverFlow;
 
 public class JustCoverFlowActivity extends AppCompatActivity implements Adapter.onItemClick {
+    /**
+     * 离中间多远的卡片从绘制缓存绘制，默认不缓存；每次选中时输出平均绘制耗时，对比开启前后的差别：
+     * adb shell am start -n com.recycler.coverflow/.JustCoverFlowActivity --ei cacheDepth 2
+     */
+    public static final String EXTRA_CACHE_DEPTH = "cacheDepth";
+
+    /**
+     * 是否裁剪被遮挡的卡片，开启后关闭半透渐变（半透的卡片不遮挡其他卡片），输出减少的过度绘制：
+     * adb shell am start -n com.recycler.coverflow/.JustCoverFlowActivity --ez occlusionCulling true
+     */
+    public static final String EXTRA_OCCLUSION_CULLING = "occlusionCulling";
 
     private RecyclerCoverFlow mList;
 
@@ -40,9 +52,12 @@ public class JustCoverFlowActivity extends AppCompatActivity implements Adapter.
         mList = findViewById(R.id.list);
     //    mList.setFlatFlow(true); //平面滚动
         mList.setGreyItem(true); //设置灰度渐变
-        mList.setAlphaItem(true); //设置半透渐变
+        boolean occlusionCulling = getIntent().getBooleanExtra(EXTRA_OCCLUSION_CULLING, false);
+        mList.setAlphaItem(!occlusionCulling); //设置半透渐变
+        mList.setOcclusionCulling(occlusionCulling); //裁剪被遮挡的卡片
 
-        mList.setLoop(); //循环滚动，注：循环滚动模式暂不支持平滑滚动
+        mList.setLoop(); //循环滚动
+        mList.setCacheDepth(getIntent().getIntExtra(EXTRA_CACHE_DEPTH, 0)); //远处的卡片使用绘制缓存
         mList.getCoverFlowLayout().setRecyclerView(mList);
 
         mList.getCoverFlowLayout().setIntervalDistance(dip2px(this, 50));
@@ -55,16 +70,10 @@ public class JustCoverFlowActivity extends AppCompatActivity implements Adapter.
 
         //参考：https://blog.csdn.net/chunqiuwei/article/details/103187199
         //参考：https://blog.csdn.net/chunqiuwei/article/details/103257452
-        mList.setOnFlingListener(new RecyclerView.OnFlingListener() {
-            @Override
-            public boolean onFling(int velocityX, int velocityY) {
-                RecyclerView.LayoutManager layoutManager = mList.getLayoutManager();
-                if(layoutManager != null && layoutManager instanceof CoverFlowLayoutManger3) {
-                    ((CoverFlowLayoutManger3) layoutManager).fixOffsetWhenFinishScroll();
-                }
-                return true;
-            }
-        });
+        //根据滑动速度一次越过多个 Item
+        CoverFlowSnapHelper snapHelper = new CoverFlowSnapHelper();
+        snapHelper.setMaxCardsPerFling(5);
+        snapHelper.attachToRecyclerView(mList);
 
         mList.setOnItemSelectedListener(new CoverFlowLayoutManger3.OnItemScrollListener() {
             @Override
@@ -86,6 +95,23 @@ public class JustCoverFlowActivity extends AppCompatActivity implements Adapter.
                 Log.i(KotlinUtilsKt.TAG, "onItemSelected  itemCount: " + mList.getLayoutManager().getItemCount() +
                         ", selectedPosition: " + position + ", tagPos: " + tagPos);
                 updateAlpha2("onItemSelected", 2);
+                CoverFlowStats stats = mList.getStats();
+                if (stats != null && stats.getDrawPasses() > 0) {
+                    Log.i(KotlinUtilsKt.TAG, "draw time, cacheDepth: " + mList.getCoverFlowLayout().getCacheDepth()
+                            + ", draws: " + stats.getDrawPasses()
+                            + ", average(us): " + (stats.getDrawTimeNanos() / stats.getDrawPasses() / 1000f)
+                            + ", cachedItemLayouts: " + stats.getCachedItemLayouts());
+                }
+                if (stats != null && stats.getCachedItemDraws() > 0 && stats.getUncachedItemDraws() > 0) {
+                    Log.i(KotlinUtilsKt.TAG, "item draw time(us), cached: "
+                            + (stats.getCachedItemDrawTimeNanos() / stats.getCachedItemDraws() / 1000f)
+                            + ", uncached: " + (stats.getUncachedItemDrawTimeNanos() / stats.getUncachedItemDraws() / 1000f));
+                }
+                if (stats != null && stats.getItemDrawArea() > 0) {
+                    Log.i(KotlinUtilsKt.TAG, "occlusion culling, overdraw saved: "
+                            + (stats.getCulledItemArea() * 100f / stats.getItemDrawArea()) + "%"
+                            + ", clipped: " + stats.getClippedItemDraws() + ", culled: " + stats.getCulledItemDraws());
+                }
             }
         });
     }
@@ -9,7 +9,6 @@ import android.widget.TextView;
 import com.recycler.coverflow.Adapter;
 import com.recycler.coverflow.R;
 
-import recycler.coverflow.CoverFlowLayoutManger;
 import recycler.coverflow.CoverFlowLayoutManger3;
 import recycler.coverflow.RecyclerCoverFlow;
 
@@ -18,8 +17,28 @@ public class ListAdapter extends RecyclerView.Adapter<ListAdapter.ViewHolder> {
     private final int TYPE_COVER_FLOW = 1;
     private final int TYPE_TEXT = 2;
 
+    /**共享回收池中每种卡片最多缓存的个数，大于一行可见的卡片个数 */
+    private static final int CARD_POOL_SIZE = 20;
+
     private int mCoverFlowPosition = 0;
 
+    /**所有卡片列表共享的回收池，外层列表滑动时卡片 View 在各行之间复用 */
+    private final RecyclerView.RecycledViewPool mCardPool = new RecyclerView.RecycledViewPool();
+
+    private final boolean mShareCardPool;
+
+    public ListAdapter() {
+        this(true);
+    }
+
+    /**
+     * @param shareCardPool 是否在所有卡片列表之间共享回收池，关闭时每个卡片列表使用自己的回收池
+     */
+    public ListAdapter(boolean shareCardPool) {
+        mShareCardPool = shareCardPool;
+        mCardPool.setMaxRecycledViews(0, CARD_POOL_SIZE);
+    }
+
     @Override
     public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
         View view = null;
@@ -28,7 +47,28 @@ public class ListAdapter extends RecyclerView.Adapter<ListAdapter.ViewHolder> {
         } else {
             view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_text, parent, false);
         }
-        ViewHolder holder = new ViewHolder(view);
+        final ViewHolder holder = new ViewHolder(view);
+        if (viewType == TYPE_COVER_FLOW) {
+            //外层列表预取该行时，同时预取中间及两边的卡片
+            holder.coverFlow.setInitialPrefetchItemCount(5);
+            if (mShareCardPool) {
+                holder.coverFlow.shareViewPool(mCardPool);
+            }
+            //setLoop 会重新创建布局器，只在创建时设置一次
+            holder.coverFlow.setLoop();
+            holder.coverFlow.setOnItemSelectedListener(new CoverFlowLayoutManger3.OnItemScrollListener() {
+                @Override
+                public void onItemScrolled() {
+
+                }
+
+                @Override
+                public void onItemSelected(int position) {
+                    mCoverFlowPosition = position;
+                    holder.text.setText((position+1)+"/"+holder.coverFlow.getLayoutManager().getItemCount());
+                }
+            });
+        }
         return holder;
     }
 
@@ -46,20 +86,8 @@ public class ListAdapter extends RecyclerView.Adapter<ListAdapter.ViewHolder> {
     }
 
     private void intiCoverFlow(final ViewHolder holder) {
-        holder.coverFlow.setAdapter(new Adapter(holder.itemView.getContext(), false));
-        holder.coverFlow.setLoop();
-        holder.coverFlow.setOnItemSelectedListener(new CoverFlowLayoutManger3.OnItemScrollListener() {
-            @Override
-            public void onItemScrolled() {
-
-            }
-
-            @Override
-            public void onItemSelected(int position) {
-                mCoverFlowPosition = position;
-                holder.text.setText((position+1)+"/"+holder.coverFlow.getLayoutManager().getItemCount());
-            }
-        });
+        //swapAdapter 保留兼容的 ViewHolder，只重新绑定，不重新创建卡片
+        holder.coverFlow.swapAdapter(new Adapter(holder.itemView.getContext(), false), false);
         holder.coverFlow.scrollToPosition(mCoverFlowPosition);
     }
 
@@ -1,12 +1,15 @@
 package com.recycler.coverflow.recyclerview;
 
 import android.os.Bundle;
+import android.util.Log;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.recycler.coverflow.Adapter;
 import com.recycler.coverflow.R;
+import com.recycler.coverflow.viewpager.KotlinUtilsKt;
 
 /**
  * 嵌套RecyclerView Demo
@@ -18,8 +21,29 @@ import com.recycler.coverflow.R;
  */
 
 public class RecyclerViewActivity extends AppCompatActivity {
+    /**
+     * 为 true 时自动将外层列表来回滑动 [BENCHMARK_PASSES] 次，统计每次滑动创建的卡片个数：
+     * adb shell am start -n com.recycler.coverflow/.recyclerview.RecyclerViewActivity --ez benchmark true --ez sharedPool false
+     */
+    public static final String EXTRA_BENCHMARK = "benchmark";
+
+    /**是否在卡片列表之间共享回收池，默认为 true */
+    public static final String EXTRA_SHARED_POOL = "sharedPool";
+
+    private static final int BENCHMARK_PASSES = 10;
+
     private RecyclerView mList;
 
+    /**本次滑动开始时卡片的创建次数 */
+    private int mScrollStartInflateCount;
+
+    /**外层列表完整滑动的次数及期间创建的卡片个数 */
+    private int mScrollCount;
+    private int mScrollInflateCount;
+
+    private boolean mBenchmark;
+    private int mBenchmarkPassesLeft;
+
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -30,6 +54,59 @@ public class RecyclerViewActivity extends AppCompatActivity {
     private void initList() {
         mList = (RecyclerView) findViewById(R.id.list);
         mList.setLayoutManager(new LinearLayoutManager(this, LinearLayoutManager.VERTICAL, false));
-        mList.setAdapter(new ListAdapter());
+        final boolean sharedPool = getIntent().getBooleanExtra(EXTRA_SHARED_POOL, true);
+        final ListAdapter adapter = new ListAdapter(sharedPool);
+        mList.setAdapter(adapter);
+        mList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_DRAGGING && !mBenchmark) {
+                    mScrollStartInflateCount = Adapter.getInflateCount();
+                } else if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    onScrollFinished(sharedPool, adapter.getItemCount());
+                }
+            }
+        });
+        mBenchmark = getIntent().getBooleanExtra(EXTRA_BENCHMARK, false);
+        if (mBenchmark) {
+            mBenchmarkPassesLeft = BENCHMARK_PASSES;
+            // 等第一次布局完成，可见行的卡片都创建好之后再开始统计
+            mList.post(new Runnable() {
+                @Override
+                public void run() {
+                    nextBenchmarkPass(adapter.getItemCount());
+                }
+            });
+        }
+    }
+
+    /**
+     * 统计一次外层列表滑动期间创建的卡片个数
+     */
+    private void onScrollFinished(boolean sharedPool, int itemCount) {
+        int inflated = Adapter.getInflateCount() - mScrollStartInflateCount;
+        mScrollCount++;
+        mScrollInflateCount += inflated;
+        Log.i(KotlinUtilsKt.TAG, "outer list scroll, sharedPool: " + sharedPool + ", inflated: " + inflated
+                + ", average: " + (mScrollInflateCount * 1.0f / mScrollCount));
+        if (mBenchmark) {
+            if (mBenchmarkPassesLeft > 0) {
+                nextBenchmarkPass(itemCount);
+            } else {
+                mBenchmark = false;
+                Log.i(KotlinUtilsKt.TAG, "inflation benchmark, sharedPool: " + sharedPool + ", scrolls: " + mScrollCount
+                        + ", inflated: " + mScrollInflateCount + ", per scroll: " + (mScrollInflateCount * 1.0f / mScrollCount));
+            }
+        }
+    }
+
+    /**
+     * 滑动到另一端
+     */
+    private void nextBenchmarkPass(int itemCount) {
+        mBenchmarkPassesLeft--;
+        mScrollStartInflateCount = Adapter.getInflateCount();
+        boolean atTop = !mList.canScrollVertically(-1);
+        mList.smoothScrollToPosition(atTop ? itemCount - 1 : 0);
     }
 }
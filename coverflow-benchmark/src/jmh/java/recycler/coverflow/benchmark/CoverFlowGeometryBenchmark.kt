@@ -0,0 +1,88 @@
+package recycler.coverflow.benchmark
+
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import recycler.coverflow.geometry.CoverFlowGeometry
+
+/**
+ * CoverFlowLayoutManger3 每一帧滑动需要做的计算
+ *
+ * 每次调用取下一个模拟偏移量，ns/op 即每帧（或每个 Item）的耗时
+ */
+@State(Scope.Thread)
+open class CoverFlowGeometryBenchmark {
+
+    /**模拟偏移量的个数 */
+    @Param("1000000", "10000000")
+    var offsetCount = 0
+
+    @Param("true", "false")
+    var loop = false
+
+    private val geometry = CoverFlowGeometry()
+    private lateinit var offsets: IntArray
+    private var index = 0
+
+    @Setup
+    fun setUp() {
+        geometry.set(
+            startX = 240, startY = 0, itemWidth = 600, itemHeight = 800,
+            horizontalSpace = 1080, intervalDistance = 150, itemCount = ITEM_COUNT, isLoop = loop
+        )
+        geometry.setEffects(isFlat = false, isAlphaItem = true, isGreyItem = true, is3DItem = true)
+        val min = if (loop) -100 * ITEM_COUNT * 150 else 0
+        val max = if (loop) 100 * ITEM_COUNT * 150 else (ITEM_COUNT - 1) * 150
+        offsets = SyntheticOffsets.create(offsetCount, 80, min, max)
+        index = 0
+    }
+
+    private fun nextOffset(): Long {
+        val offset = offsets[index].toLong()
+        index++
+        if (index == offsets.size) index = 0
+        return offset
+    }
+
+    /**完整的一帧：可见范围以及范围内每个 Item 的位置、缩放、半透、灰度、旋转 */
+    @Benchmark
+    fun layout(): Int {
+        geometry.layout(nextOffset())
+        return geometry.count
+    }
+
+    /**只计算可见范围 */
+    @Benchmark
+    fun visibleWindow(): Boolean {
+        return geometry.updateAttachedRange(nextOffset())
+    }
+
+    @Benchmark
+    fun computeScale(): Float {
+        return geometry.computeScale((geometry.frameLeft(3) - nextOffset()).toInt())
+    }
+
+    /**包含 Math.pow */
+    @Benchmark
+    fun computeGreyScale(): Float {
+        return geometry.computeGreyScale((geometry.frameLeft(3) - nextOffset()).toInt())
+    }
+
+    /**3D 倾斜，包含 sqrt */
+    @Benchmark
+    fun computeRotationY(): Float {
+        return geometry.computeRotationY(geometry.frameLeft(3).toInt(), geometry.frameRight(3).toInt(), nextOffset().toInt())
+    }
+
+    /**循环模式下位置到 adapter 位置的取模转换 */
+    @Benchmark
+    fun adapterPosition(): Int {
+        return geometry.adapterPosition(geometry.centerPosition(nextOffset()))
+    }
+
+    companion object {
+        private const val ITEM_COUNT = 20
+    }
+}
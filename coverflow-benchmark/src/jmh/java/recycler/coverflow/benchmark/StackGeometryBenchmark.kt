@@ -0,0 +1,50 @@
+package recycler.coverflow.benchmark
+
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import recycler.stacklayout.geometry.StackGeometry
+
+/**
+ * StackLayoutManager.onLayout 中每个 Item 的缩放、半透插值
+ */
+@State(Scope.Thread)
+open class StackGeometryBenchmark {
+
+    /**模拟偏移量的个数 */
+    @Param("1000000", "10000000")
+    var offsetCount = 0
+
+    /**层叠的级数，每一帧的计算量应该与 3 级时相近 */
+    @Param("3", "10")
+    var maxCount = 0
+
+    private val geometry = StackGeometry()
+    private lateinit var offsets: IntArray
+    private var index = 0
+
+    @Setup
+    fun setUp() {
+        geometry.setMaxCount(maxCount)
+        geometry.itemSpace = 24
+        geometry.itemWidth = ITEM_WIDTH
+        geometry.itemCount = 20
+        geometry.isLoop = true
+        offsets = SyntheticOffsets.create(offsetCount, 80, 0, 1000 * ITEM_WIDTH)
+        index = 0
+    }
+
+    @Benchmark
+    fun layout(): Float {
+        val offset = offsets[index]
+        index++
+        if (index == offsets.size) index = 0
+        return geometry.layout(offset / ITEM_WIDTH, offset % ITEM_WIDTH)
+    }
+
+    companion object {
+        private const val ITEM_WIDTH = 900
+    }
+}
@@ -0,0 +1,25 @@
+package recycler.coverflow.benchmark
+
+import java.util.Random
+
+/**
+ * 生成模拟滑动的偏移量序列：每一帧在上一帧的基础上随机移动 -maxStep..maxStep，
+ * 固定随机种子，保证每次运行的输入一致
+ */
+internal object SyntheticOffsets {
+
+    fun create(count: Int, maxStep: Int, min: Int, max: Int): IntArray {
+        val random = Random(SEED)
+        val offsets = IntArray(count)
+        var offset = (min + max) / 2
+        for (i in 0 until count) {
+            offset += random.nextInt(maxStep * 2 + 1) - maxStep
+            if (offset < min) offset = min
+            if (offset > max) offset = max
+            offsets[i] = offset
+        }
+        return offsets
+    }
+
+    private const val SEED = 20201118L
+}
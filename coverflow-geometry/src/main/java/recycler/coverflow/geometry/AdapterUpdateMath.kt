@@ -0,0 +1,58 @@
+package recycler.coverflow.geometry
+
+/**
+ * adapter 增删、移动 Item 之后，原来某个 Item 的新位置，以及保持该 Item 不动时偏移量的修正
+ */
+internal object AdapterUpdateMath {
+
+    /**
+     * 在 [positionStart] 插入 [count] 个 Item 后，原来位置为 [position] 的 Item 的新位置
+     */
+    fun positionAfterAdd(position: Int, positionStart: Int, count: Int): Int {
+        return if (position >= positionStart) position + count else position
+    }
+
+    /**
+     * 从 [positionStart] 开始删除 [count] 个 Item 后，原来位置为 [position] 的 Item 的新位置，
+     * 该 Item 被删除时返回删除范围之后第一个 Item 的新位置，即 positionStart
+     */
+    fun positionAfterRemove(position: Int, positionStart: Int, count: Int): Int {
+        return when {
+            position >= positionStart + count -> position - count
+            position >= positionStart -> positionStart
+            else -> position
+        }
+    }
+
+    /**
+     * 将 Item 从 [from] 移动到 [to] 后，原来位置为 [position] 的 Item 的新位置
+     */
+    fun positionAfterMove(position: Int, from: Int, to: Int): Int {
+        return when {
+            position == from -> to
+            from < to && position > from && position <= to -> position - 1
+            from > to && position >= to && position < from -> position + 1
+            else -> position
+        }
+    }
+
+    /**
+     * 保持 [position] 处的 Item 不动时，Item 个数变化后修正的偏移量，循环模式下保持所在的圈数不变
+     * @param offset 当前偏移量，位置为 i 的 Item 对应偏移量 i * interval
+     * @param position 当前位置，循环模式下可能为负值或者超过 oldCount
+     * @param newAdapterPosition 该 Item 在新 adapter 中的位置
+     * @return 新的偏移量，保留原来相对于 position 的滑动距离
+     */
+    fun remapOffset(offset: Long, interval: Int, position: Int, oldCount: Int, newAdapterPosition: Int,
+                    newCount: Int, isLoop: Boolean): Long {
+        if (newCount <= 0 || interval <= 0) return 0L
+        var lap = 0
+        if (isLoop && oldCount > 0) {
+            lap = position / oldCount
+            if (position % oldCount < 0) lap--
+        }
+        val adapterPosition = newAdapterPosition.coerceIn(0, newCount - 1)
+        val newOffset = offset + (lap.toLong() * newCount + adapterPosition - position) * interval
+        return if (isLoop) newOffset else newOffset.coerceIn(0L, (newCount - 1).toLong() * interval)
+    }
+}
@@ -0,0 +1,683 @@
+package recycler.coverflow.geometry
+
+import kotlin.math.abs
+import kotlin.math.sqrt
+
+/**
+ * 旋转木马布局的纯计算部分，不依赖 Android，只使用基本类型，滚动过程中不产生任何对象分配
+ *
+ * 使用方式：布局参数变化时调用 [set]，每一帧调用 [layout] 计算出需要显示的 Item 范围以及每个 Item 的
+ * 位置、缩放、透明度、灰度、旋转，结果保存在 [positions]、[lefts]、[scales] 等数组中，
+ * 第 slot 个元素对应位置为 [attachedMin] + slot 的 Item，布局器只需要将结果应用到 View 上
+ *
+ * 缩放、半透等效果由 [ItemTransformer] 插件计算，[setEffects] 开启的内置效果和 [addTransformer]
+ * 添加的自定义效果在计算每个 Item 时依次执行，布局器只需要应用 [properties] 中的属性
+ *
+ * Note: 除 [layout] 的输出外，坐标都是相对于整个滑动区域的（未减去 offset）
+ */
+class CoverFlowGeometry : ItemLayoutResult<CoverFlowGeometry>(MAX_LAYOUT_COUNT) {
+    /**起始ItemX坐标 */
+    var startX = 0
+
+    /**起始Item Y坐标 */
+    var startY = 0
+
+    /**Item宽 */
+    var itemWidth = 0
+
+    /**Item高 */
+    var itemHeight = 0
+
+    /**可见区域宽 */
+    var horizontalSpace = 0
+
+    /**Item间隔 */
+    var intervalDistance = 150
+
+    /**相邻Item高度缩小的距离，[SCALE_BY_HEIGHT_INTERVAL] 模式下使用 */
+    var intervalHeightDistance = 75
+
+    /**Item间隔与item宽的比例，[SCALE_BY_INTERVAL_RATIO] 模式下使用 */
+    var intervalRatio = 0.5f
+
+    /**Item数量 */
+    var itemCount = 0
+
+    /**是否无限循环 */
+    var isLoop = false
+
+    /**
+     * 每个 Item 测量出的宽度，为 null 时所有 Item 的宽度都为 [itemWidth]，间隔都为 [intervalDistance]；
+     * 不为 null 时个数在 [set] 中与 [itemCount] 同步
+     */
+    var itemWidths: ItemWidthIndex? = null
+
+    /**缩放、半透的计算方式，[SCALE_BY_HEIGHT_INTERVAL] 或 [SCALE_BY_INTERVAL_RATIO] */
+    var scaleMode = SCALE_BY_HEIGHT_INTERVAL
+
+    /**是否为平面滚动，Item之间没有叠加，也没有缩放 */
+    var isFlat = false
+        private set
+
+    /**是否启动Item半透渐变 */
+    var isAlphaItem = false
+        private set
+
+    /**是否启动Item灰度值渐变 */
+    var isGreyItem = false
+        private set
+
+    /**是否启动Item 3D 倾斜 */
+    var is3DItem = false
+        private set
+
+    init {
+        updateTransformers()
+    }
+
+    /**[updateWindow] 计算出的需要布局的最小位置（包含） */
+    var windowMin = 0
+        private set
+
+    /**[updateWindow] 计算出的需要布局的最大位置（包含） */
+    var windowMax = 0
+        private set
+
+    /**当前应该 attach 的最小位置（包含），[hasAttached] 为 false 时无意义 */
+    var attachedMin = 0
+        private set
+
+    /**当前应该 attach 的最大位置（包含），[hasAttached] 为 false 时无意义 */
+    var attachedMax = 0
+        private set
+
+    /**是否有需要 attach 的 Item */
+    var hasAttached = false
+        private set
+
+    /**[layout] 计算出的 Item 个数，即下面各数组的有效长度 */
+    var count = 0
+        private set
+
+    /**Item 的位置，循环模式下可能为负值或者超过 itemCount */
+    val positions = IntArray(MAX_LAYOUT_COUNT)
+
+    /**Item 在 adapter 中的位置 */
+    val adapterPositions = IntArray(MAX_LAYOUT_COUNT)
+
+    /**
+     * Item 在屏幕上的左边坐标（已减去 offset，未修正缩放带来的偏移），供 [ItemTransformer] 使用；
+     * Item 宽度与 [itemWidth] 不同时，为中心不变、宽度为 itemWidth 的 Item 的左边坐标
+     */
+    val xs = IntArray(MAX_LAYOUT_COUNT)
+
+    /**Item 未缩放时的宽 */
+    val widths = IntArray(MAX_LAYOUT_COUNT)
+
+    /**Item 未缩放时的高 */
+    val heights = IntArray(MAX_LAYOUT_COUNT)
+
+    /**
+     * 按 Item 位置计算出的缩放系数，无论是否开启缩放都会计算，每个 Item 只计算一次，
+     * 用于修正叠加的位置，[ScaleTransformer]、[AlphaTransformer] 直接读取
+     */
+    val baseScales = FloatArray(MAX_LAYOUT_COUNT)
+
+    fun set(startX: Int, startY: Int, itemWidth: Int, itemHeight: Int,
+            horizontalSpace: Int, intervalDistance: Int, itemCount: Int, isLoop: Boolean) {
+        this.startX = startX
+        this.startY = startY
+        this.itemWidth = itemWidth
+        this.itemHeight = itemHeight
+        this.horizontalSpace = horizontalSpace
+        this.intervalDistance = intervalDistance
+        this.itemCount = itemCount
+        this.isLoop = isLoop
+        itemWidths?.setup(itemCount, itemWidth, intervalDistance)
+    }
+
+    /**
+     * 记录 adapter 位置为 [adapterPosition] 的 Item 测量出的宽度，没有设置 [itemWidths] 时不做任何事
+     * @return 宽度是否发生了变化
+     */
+    fun setItemWidth(adapterPosition: Int, width: Int): Boolean {
+        val widths = itemWidths ?: return false
+        if (adapterPosition < 0 || adapterPosition >= widths.size) return false
+        return widths.setWidth(adapterPosition, width)
+    }
+
+    /**
+     * 位置为 [index] 的 Item 的宽度
+     */
+    fun itemWidthOf(index: Int): Int {
+        val widths = itemWidths
+        if (widths == null || widths.size == 0) return itemWidth
+        return widths.width(adapterPosition(index))
+    }
+
+    /**
+     * 设置开启的效果
+     */
+    fun setEffects(isFlat: Boolean, isAlphaItem: Boolean, isGreyItem: Boolean, is3DItem: Boolean) {
+        if (this.isFlat == isFlat && this.isAlphaItem == isAlphaItem &&
+            this.isGreyItem == isGreyItem && this.is3DItem == is3DItem) {
+            return
+        }
+        this.isFlat = isFlat
+        this.isAlphaItem = isAlphaItem
+        this.isGreyItem = isGreyItem
+        this.is3DItem = is3DItem
+        updateTransformers()
+    }
+
+    override fun collectBuiltInTransformers(out: MutableList<ItemTransformer<CoverFlowGeometry>>) {
+        if (!isFlat) out.add(ScaleTransformer)
+        if (isAlphaItem) out.add(AlphaTransformer)
+        if (isGreyItem) out.add(GreyTransformer)
+        if (is3DItem) out.add(Rotation3DTransformer)
+    }
+
+    /**
+     * Item 左边的坐标
+     * @param index item位置（循环模式下可能为负值）
+     */
+    fun frameLeft(index: Int): Long {
+        if (itemWidths != null) {
+            return startX + calculateOffsetForPosition(index) - (itemWidthOf(index) - itemWidth) / 2
+        }
+        return startX + calculateOffsetForPosition(index)
+    }
+
+    /**
+     * Item 右边的坐标
+     */
+    fun frameRight(index: Int): Long {
+        return frameLeft(index) + itemWidthOf(index)
+    }
+
+    fun frameTop(): Int = startY
+
+    fun frameBottom(): Int = startY + itemHeight
+
+    /**
+     * Item 是否需要显示，可见区域左右各多预留 5 个间隔
+     * @param left item左边坐标
+     * @param right item右边坐标
+     * @param offset 滑动总偏移量
+     */
+    fun isNeedShow(left: Long, right: Long, offset: Long): Boolean {
+        return !(right > offset + horizontalSpace + 5 * intervalDistance ||
+                left < offset - 5 * intervalDistance)
+    }
+
+    fun isNeedShow(index: Int, offset: Long): Boolean {
+        return isNeedShow(frameLeft(index), frameRight(index), offset)
+    }
+
+    /**
+     * 获取显示在中间的位置
+     */
+    fun centerPosition(offset: Long): Int {
+        if (itemWidths != null) {
+            val floor = floorPosition(offset)
+            val floorDistance = offset - calculateOffsetForPosition(floor)
+            val ceilDistance = calculateOffsetForPosition(floor + 1) - offset
+            return if (floorDistance >= ceilDistance) floor + 1 else floor
+        }
+        var pos = (offset / intervalDistance).toInt()
+        val more = offset % intervalDistance
+        if (abs(more) >= intervalDistance * 0.5f) {
+            if (more >= 0) pos++ else pos--
+        }
+        return pos
+    }
+
+    /**
+     * 计算Item所在的位置偏移, 相对于中间的距离
+     * @param position 要计算Item位置
+     */
+    fun calculateOffsetForPosition(position: Int): Long {
+        val widths = itemWidths
+        if (widths != null && widths.size > 0) {
+            val size = widths.size
+            if (position in 0 until size) return widths.offsetOf(position)
+            if (isLoop) {
+                val lap = FlingMath.floorDiv(position, size)
+                return lap * widths.total + widths.offsetOf(position - lap * size)
+            }
+            // 非循环模式下超出范围的位置按默认间隔计算
+            return if (position < 0) {
+                intervalDistance.toLong() * position
+            } else {
+                widths.offsetOf(size - 1) + intervalDistance.toLong() * (position - size + 1)
+            }
+        }
+        return intervalDistance.toLong() * position
+    }
+
+    /**
+     * 循环一圈的长度
+     */
+    val cycleLength: Long
+        get() = calculateOffsetForPosition(itemCount) - calculateOffsetForPosition(0)
+
+    /**
+     * 循环模式下偏移量的绝对值超过 [threshold] 时，需要减去的圈数，减去之后中间的 Item 回到第 0 圈
+     *
+     * 偏移量及位置在循环模式下会一直增长，定期减去整数圈可以保证位置不会溢出，显示的内容不变
+     * @return 不需要归一化时返回 0
+     */
+    fun renormalizeLaps(offset: Long, threshold: Long = RENORMALIZE_THRESHOLD): Int {
+        if (!isLoop || itemCount <= 0 || abs(offset) < threshold) return 0
+        return FlingMath.floorDiv(centerPosition(offset), itemCount)
+    }
+
+    /**
+     * 所有位置整体平移 [delta]，归一化偏移量之后调用，同步 attach 范围及 [positions]
+     */
+    fun shiftPositions(delta: Int) {
+        windowMin += delta
+        windowMax += delta
+        attachedMin += delta
+        attachedMax += delta
+        for (slot in 0 until count) {
+            positions[slot] += delta
+        }
+    }
+
+    /**
+     * 偏移量不超过 [offset] 的最大位置
+     */
+    fun floorPosition(offset: Long): Int {
+        val widths = itemWidths
+        if (widths == null || widths.size == 0) {
+            return if (intervalDistance > 0) FlingMath.floorDiv(offset, intervalDistance.toLong()).toInt() else 0
+        }
+        val size = widths.size
+        if (isLoop) {
+            val total = widths.total
+            val lap = FlingMath.floorDiv(offset, total)
+            return (lap * size).toInt() + widths.positionAt(offset - lap * total)
+        }
+        if (offset < 0) return FlingMath.floorDiv(offset, intervalDistance.toLong()).toInt()
+        val last = widths.offsetOf(size - 1)
+        if (offset >= last) return size - 1 + ((offset - last) / intervalDistance).toInt()
+        return widths.positionAt(offset)
+    }
+
+    /**
+     * 计算中间位置前后需要检查的范围，结果保存在 [windowMin] 和 [windowMax]
+     */
+    fun updateWindow(centerPosition: Int) {
+        var min = centerPosition - WINDOW_HALF_SIZE
+        var max = centerPosition + WINDOW_HALF_SIZE
+        if (!isLoop) {
+            if (min < 0) min = 0
+            if (max > itemCount - 1) max = itemCount - 1
+        }
+        windowMin = min
+        windowMax = max
+    }
+
+    /**
+     * 根据偏移量更新需要 attach 的范围：中间位置前后 [WINDOW_HALF_SIZE] 个内需要显示的 Item，
+     * 范围之外的 Item 都需要回收。范围只在中间位置变化（即越过一个 Item）时才会变化
+     *
+     * @return attach 的范围是否发生了变化
+     */
+    fun updateAttachedRange(offset: Long): Boolean {
+        updateWindow(centerPosition(offset))
+        var min = windowMin
+        var max = windowMax
+        while (min <= max && !isNeedShow(min, offset)) min++
+        while (max >= min && !isNeedShow(max, offset)) max--
+
+        val has = min <= max
+        val changed = has != hasAttached || (has && (min != attachedMin || max != attachedMax))
+        hasAttached = has
+        attachedMin = min
+        attachedMax = max
+        return changed
+    }
+
+    /**
+     * 清空 attach 范围，所有 Item 被移除后调用
+     */
+    fun resetAttachedRange() {
+        hasAttached = false
+        count = 0
+    }
+
+    fun isAttached(index: Int): Boolean {
+        return hasAttached && index >= attachedMin && index <= attachedMax
+    }
+
+    /**
+     * 位置在 [layout] 输出数组中的下标
+     * @return 没有 attach 时返回 -1
+     */
+    fun slotOf(index: Int): Int {
+        return if (isAttached(index)) index - attachedMin else -1
+    }
+
+    /**
+     * 计算一帧的布局：更新 attach 范围，并计算范围内每个 Item 的位置及各项效果的值
+     *
+     * @param extraItems 预布局时 attach 范围两端各多计算的 Item 个数，最多 [MAX_PRE_LAYOUT_EXTRA] 个，
+     * 作为数据变化后补位的 Item 出现动画的起点
+     * @return attach 的范围是否发生了变化（不包括 extraItems）
+     */
+    fun layout(offset: Long, extraItems: Int = 0): Boolean {
+        val changed = updateAttachedRange(offset)
+        if (hasAttached && extraItems > 0) {
+            val extra = if (extraItems > MAX_PRE_LAYOUT_EXTRA) MAX_PRE_LAYOUT_EXTRA else extraItems
+            attachedMin -= extra
+            attachedMax += extra
+            if (!isLoop) {
+                if (attachedMin < 0) attachedMin = 0
+                if (attachedMax > itemCount - 1) attachedMax = itemCount - 1
+            }
+        }
+        count = if (hasAttached) attachedMax - attachedMin + 1 else 0
+        for (slot in 0 until count) {
+            computeItem(slot, attachedMin + slot, offset)
+        }
+        return changed
+    }
+
+    private fun computeItem(slot: Int, index: Int, offset: Long) {
+        val frameLeft = frameLeft(index)
+        val frameWidth = itemWidthOf(index)
+        val frameHeight = frameBottom() - frameTop()
+        var left = (frameLeft - offset).toInt()
+        // 宽度不同的 Item 按中心位置计算各项效果
+        val x = if (frameWidth == itemWidth) left else left + (frameWidth - itemWidth) / 2
+        val scaleXY = computeScale(x)
+
+        // View 以中心缩放，为了让缩放后的 Item 依次叠加，需要向两边修正缩放带来的偏移
+        val scaleWidth = frameWidth - frameWidth * scaleXY
+        val scaleHeight = frameHeight - frameHeight * scaleXY
+        if (x >= startX) {
+            left += (scaleWidth / 2).toInt()
+        } else {
+            left -= (scaleWidth / 2).toInt()
+        }
+
+        positions[slot] = index
+        adapterPositions[slot] = adapterPosition(index)
+        xs[slot] = x
+        baseScales[slot] = scaleXY
+        lefts[slot] = left
+        tops[slot] = frameTop() + (scaleHeight / 2).toInt()
+        widths[slot] = frameWidth
+        heights[slot] = frameHeight
+        transform(slot)
+    }
+
+    /**
+     * 计算Item缩放系数
+     * @param x Item的x坐标（已减去 offset）
+     * @return 缩放系数
+     */
+    fun computeScale(x: Int): Float {
+        if (scaleMode == SCALE_BY_INTERVAL_RATIO) {
+            var scale = 1 - abs(x - startX) * 1.0f / abs(startX + itemWidth / intervalRatio)
+            if (scale < 0) scale = 0f
+            if (scale > 1) scale = 1f
+            return scale
+        }
+        //距离最中间的第几个view，每个view height被缩放的距离相等，因此可以获得该view被缩放的高度
+        val scaledHeight = (abs(x - startX) * 1.0f / intervalDistance) * intervalHeightDistance
+        return (itemHeight - scaledHeight) / itemHeight
+    }
+
+    /**
+     * 计算Item半透值
+     * @param x Item的x坐标（已减去 offset）
+     * @return 半透值
+     */
+    fun computeAlpha(x: Int): Float {
+        return computeAlpha(x, computeScale(x))
+    }
+
+    /**
+     * 计算Item半透值
+     * @param x Item的x坐标（已减去 offset）
+     * @param scale 该位置的缩放系数，即 [computeScale] 的结果
+     */
+    fun computeAlpha(x: Int, scale: Float): Float {
+        var alpha: Float
+        if (scaleMode == SCALE_BY_INTERVAL_RATIO) {
+            alpha = 1 - abs(x - startX) * 1.0f / abs(startX + itemWidth / intervalRatio)
+            if (alpha < 0.3f) alpha = 0.3f
+        } else {
+            alpha = scale * scale
+            if (alpha < 0.1f) alpha = 0.1f
+        }
+        if (alpha > 1) alpha = 1.0f
+        return alpha
+    }
+
+    /**
+     * 计算Item的灰度值
+     * @param x Item的x坐标（已减去 offset）
+     * @return 灰度系数
+     */
+    fun computeGreyScale(x: Int): Float {
+        val itemMidPos = x + itemWidth / 2.toFloat() //item中点x坐标
+        val itemDx2Mid = abs(itemMidPos - horizontalSpace / 2f) //item中点距离控件中点距离
+        var value = 1 - itemDx2Mid * 1.0f / (horizontalSpace / 2)
+        if (value < 0.1) value = 0.1f
+        if (value > 1) value = 1f
+        value = Math.pow(value.toDouble(), .8).toFloat()
+        return value
+    }
+
+    /**
+     * 计算Item 3D 倾斜时绕 Y 轴旋转的角度
+     * @param left item左边坐标
+     * @param right item右边坐标
+     * @param offset 滑动总偏移量
+     */
+    fun computeRotationY(left: Int, right: Int, offset: Int): Float {
+        val center = (left + right - 2 * offset) / 2f
+        val itemCenter = startX + itemWidth / 2f
+        var value = (center - itemCenter) * 1f / (itemCount * intervalDistance)
+        value = sqrt(abs(value))
+        val symbol = if (center > itemCenter) -1 else 1
+        return symbol * 50 * value
+    }
+
+    /**
+     * 惯性滑动时需要停留的位置，循环模式下可以越过首尾，非循环模式下限制在 0 到 itemCount - 1
+     * @param offset 当前偏移量
+     * @param flingDistance 根据速度估算出的惯性滑动距离
+     * @param maxCards 一次惯性滑动最多越过的 Item 个数
+     */
+    fun flingTargetPosition(offset: Long, flingDistance: Int, maxCards: Int): Int {
+        if (intervalDistance <= 0) return fixedScrollPosition(offset)
+        val target = if (itemWidths == null) {
+            FlingMath.targetPosition(offset, flingDistance, intervalDistance, maxCards)
+        } else {
+            val floor = floorPosition(offset)
+            val ceil = if (calculateOffsetForPosition(floor) == offset) floor else floor + 1
+            FlingMath.clampTarget(centerPosition(offset + flingDistance), floor, ceil, flingDistance, maxCards)
+        }
+        return if (isLoop || itemCount <= 0) target else target.coerceIn(0, itemCount - 1)
+    }
+
+    /**
+     * 停止滚动时需要停留的位置，即距离当前偏移量最近的 Item
+     */
+    fun fixedScrollPosition(offset: Long): Int {
+        if (itemWidths != null) return centerPosition(offset)
+        var scrollN = (offset / intervalDistance).toInt()
+        val moreDx = (offset % intervalDistance).toFloat()
+        if (abs(moreDx) > intervalDistance * 0.5) {
+            if (moreDx > 0) scrollN++ else scrollN--
+        }
+        return scrollN
+    }
+
+    /**
+     * 还需要滑动多少距离，位置为 [index] 的 Item 才会被 attach，用于预取时的优先级排序
+     *
+     * 需要同时满足在中间位置前后 [WINDOW_HALF_SIZE] 个以内，且 [isNeedShow]
+     * @param index item位置，在当前 attach 范围的右边时按向左滑动计算，否则按向右滑动计算
+     * @param offset 滑动总偏移量
+     * @return 已经可以 attach 时返回 0
+     */
+    fun distanceToAttach(index: Int, offset: Long): Int {
+        val halfInterval = intervalDistance / 2
+        val distance = if (index > centerPosition(offset)) {
+            val showOffset = frameRight(index) - horizontalSpace - 5 * intervalDistance
+            val windowOffset = calculateOffsetForPosition(index - WINDOW_HALF_SIZE) - halfInterval
+            maxOf(showOffset, windowOffset) - offset
+        } else {
+            val showOffset = frameLeft(index) + 5 * intervalDistance
+            val windowOffset = calculateOffsetForPosition(index + WINDOW_HALF_SIZE) + halfInterval
+            offset - minOf(showOffset, windowOffset)
+        }
+        return if (distance > 0) minOf(distance, Int.MAX_VALUE.toLong()).toInt() else 0
+    }
+
+    /**
+     * 获取 adapter 位置为 [adapterPosition] 的 Item 距离 [fromPosition] 最近的位置，
+     * 循环模式下可以向前也可以向后滚动，取较近的方向；非循环模式下直接返回 adapterPosition
+     */
+    fun nearestPosition(adapterPosition: Int, fromPosition: Int): Int {
+        if (!isLoop || itemCount <= 0) return adapterPosition
+        var delta = (adapterPosition - adapterPosition(fromPosition)) % itemCount
+        if (delta < 0) delta += itemCount
+        if (delta > itemCount / 2) delta -= itemCount
+        return fromPosition + delta
+    }
+
+    /**
+     * 平滑滚动的起点：距离目标超过 [maxItems] 个 Item 时，先直接跳到距离目标 maxItems 个 Item 的位置，
+     * 再平滑滚动过去，避免创建、绑定中间所有的 Item
+     * @return 不需要跳转时返回 [fromPosition]
+     */
+    fun smoothScrollStartPosition(fromPosition: Int, targetPosition: Int,
+                                  maxItems: Int = MAX_SMOOTH_SCROLL_ITEMS): Int {
+        val distance = targetPosition - fromPosition
+        return when {
+            distance > maxItems -> targetPosition - maxItems
+            distance < -maxItems -> targetPosition + maxItems
+            else -> fromPosition
+        }
+    }
+
+    /**
+     * 在 [positionStart] 插入 [count] 个 Item 后的偏移量，保持显示在中间的 Item 不变，并更新 [itemCount]
+     */
+    fun offsetAfterItemsAdded(offset: Long, positionStart: Int, count: Int): Long {
+        val center = centerPosition(offset)
+        val adapterPosition = AdapterUpdateMath.positionAfterAdd(adapterPosition(center), positionStart, count)
+        val fraction = offset - calculateOffsetForPosition(center)
+        itemWidths?.insert(positionStart, count)
+        return remapOffset(offset, center, fraction, adapterPosition, itemCount + count)
+    }
+
+    /**
+     * 从 [positionStart] 开始删除 [count] 个 Item 后的偏移量，保持显示在中间的 Item 不变，
+     * 中间的 Item 被删除时显示它后面的 Item，并更新 [itemCount]
+     */
+    fun offsetAfterItemsRemoved(offset: Long, positionStart: Int, count: Int): Long {
+        val center = centerPosition(offset)
+        val adapterPosition = AdapterUpdateMath.positionAfterRemove(adapterPosition(center), positionStart, count)
+        val fraction = offset - calculateOffsetForPosition(center)
+        itemWidths?.remove(positionStart, count)
+        return remapOffset(offset, center, fraction, adapterPosition, itemCount - count)
+    }
+
+    /**
+     * 将 Item 从 [from] 移动到 [to] 后的偏移量，保持显示在中间的 Item 不变
+     */
+    fun offsetAfterItemMoved(offset: Long, from: Int, to: Int): Long {
+        val center = centerPosition(offset)
+        val adapterPosition = AdapterUpdateMath.positionAfterMove(adapterPosition(center), from, to)
+        val fraction = offset - calculateOffsetForPosition(center)
+        itemWidths?.move(from, to)
+        return remapOffset(offset, center, fraction, adapterPosition, itemCount)
+    }
+
+    /**
+     * @param fraction 偏移量相对于中间 Item 的滑动距离
+     */
+    private fun remapOffset(offset: Long, center: Int, fraction: Long, newAdapterPosition: Int, newCount: Int): Long {
+        if (intervalDistance == 0) {
+            itemCount = newCount
+            return offset
+        }
+        if (itemWidths != null) {
+            // 宽度不同时各位置的偏移量不是等间隔的，重新计算中间 Item 的偏移量
+            val lap = if (isLoop && itemCount > 0) FlingMath.floorDiv(center, itemCount) else 0
+            itemCount = newCount
+            if (newCount <= 0) return 0L
+            val newOffset = calculateOffsetForPosition(lap * newCount + newAdapterPosition.coerceIn(0, newCount - 1)) + fraction
+            return if (isLoop) newOffset else newOffset.coerceIn(0, calculateOffsetForPosition(newCount - 1))
+        }
+        val newOffset = AdapterUpdateMath.remapOffset(
+            offset, intervalDistance, center, itemCount, newAdapterPosition, newCount, isLoop
+        )
+        itemCount = newCount
+        return newOffset
+    }
+
+    /**
+     * 将位置（循环模式下可能为负值或者超过 itemCount）转换为 adapter 中的位置
+     */
+    fun adapterPosition(index: Int): Int {
+        if (itemCount <= 0) return index
+        var actualPos = index % itemCount
+        // 循环滚动时，位置可能是负值，需要将其转换为对应的 item 的值
+        if (actualPos < 0) actualPos += itemCount
+        return actualPos
+    }
+
+    companion object {
+        /**中间位置前后各检查多少个 item */
+        const val WINDOW_HALF_SIZE = 3
+
+        /**最多同时 attach 的 item 个数 */
+        const val MAX_ATTACHED_COUNT = WINDOW_HALF_SIZE * 2 + 1
+
+        /**预布局时 attach 范围两端各最多多计算的 Item 个数 */
+        const val MAX_PRE_LAYOUT_EXTRA = WINDOW_HALF_SIZE
+
+        /**[layout] 最多计算的 Item 个数，即结果数组的长度 */
+        const val MAX_LAYOUT_COUNT = MAX_ATTACHED_COUNT + 2 * MAX_PRE_LAYOUT_EXTRA
+
+        /**循环模式下偏移量的绝对值超过该值时归一化，见 [renormalizeLaps] */
+        const val RENORMALIZE_THRESHOLD = 1L shl 30
+
+        /**平滑滚动最多经过的 item 个数，超过时先跳转再滚动 */
+        const val MAX_SMOOTH_SCROLL_ITEMS = 5
+
+        /**按相邻 Item 高度缩小的距离计算缩放，CoverFlowLayoutManger3 使用 */
+        const val SCALE_BY_HEIGHT_INTERVAL = 0
+
+        /**按 Item 间隔与宽的比例计算缩放 */
+        const val SCALE_BY_INTERVAL_RATIO = 1
+
+        /**
+         * 非循环模式下限制一次滑动的距离，偏移量保持在 [0, maxOffset] 之间
+         *
+         * 偏移量可能超过 Float 能精确表示的范围，比较与相减都使用 Long
+         * @param offset 当前偏移量
+         * @param dx 希望滑动的距离
+         * @param maxOffset 最后一个 Item 的偏移量
+         * @return 实际滑动的距离
+         */
+        @JvmStatic
+        fun clampScroll(offset: Long, dx: Int, maxOffset: Long): Int {
+            val target = offset + dx
+            return when {
+                target < 0 -> (-offset).toInt()
+                target > maxOffset -> (maxOffset - offset).toInt()
+                else -> dx
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package recycler.coverflow.geometry
+
+/**
+ * 惯性滑动（fling）时目标 Item 的计算，Item 按 interval 等间距排列，位置为 i 的 Item 对应偏移量 i * interval
+ */
+internal object FlingMath {
+
+    /**
+     * 根据惯性滑动的距离计算停留的 Item 位置，不限制位置范围
+     *
+     * 至少越过滑动方向上的下一个 Item，最多越过 [maxCards] 个
+     * @param offset 当前偏移量
+     * @param distance 根据速度估算出的惯性滑动距离，大于 0 为向左滑动（偏移量增大）
+     * @param interval Item 间隔
+     * @param maxCards 一次惯性滑动最多越过的 Item 个数
+     */
+    fun targetPosition(offset: Long, distance: Int, interval: Int, maxCards: Int): Int {
+        val step = interval.toLong()
+        val projected = floorDiv(offset + distance + interval / 2, step).toInt()
+        val floor = floorDiv(offset, step).toInt()
+        val ceil = (-floorDiv(-offset, step)).toInt()
+        return clampTarget(projected, floor, ceil, distance, maxCards)
+    }
+
+    /**
+     * 限制惯性滑动的目标位置：至少越过滑动方向上的下一个 Item，最多越过 [maxCards] 个
+     * @param projected 按惯性滑动距离估算出的位置
+     * @param floor 偏移量不超过当前偏移量的最大位置
+     * @param ceil 偏移量不小于当前偏移量的最小位置
+     */
+    fun clampTarget(projected: Int, floor: Int, ceil: Int, distance: Int, maxCards: Int): Int {
+        val max = if (maxCards < 1) 1 else maxCards
+        return when {
+            distance > 0 -> projected.coerceIn(floor + 1, floor + max)
+            distance < 0 -> projected.coerceIn(ceil - max, ceil - 1)
+            else -> projected
+        }
+    }
+
+    /**
+     * 向下取整的除法，Math.floorDiv 在低版本 Android 上不可用
+     */
+    fun floorDiv(x: Int, y: Int): Int {
+        val q = x / y
+        return if (x % y != 0 && (x xor y) < 0) q - 1 else q
+    }
+
+    fun floorDiv(x: Long, y: Long): Long {
+        val q = x / y
+        return if (x % y != 0L && (x xor y) < 0) q - 1 else q
+    }
+}
@@ -0,0 +1,107 @@
+package recycler.coverflow.geometry
+
+/**
+ * 每个 Item 的布局结果及 [ItemTransformer] 效果管线，旋转木马（[CoverFlowGeometry]）与层叠
+ * （[recycler.stacklayout.geometry.StackGeometry]）布局共用
+ *
+ * 子类在计算每个 Item 时先写入位置及效果的初始值，再调用 [transform] 依次执行内置效果和自定义效果，
+ * 布局器只需要将 [properties] 中的属性应用到 View 上
+ *
+ * @param G 具体的布局计算类型，[ItemTransformer] 通过它读取各布局特有的数据
+ */
+abstract class ItemLayoutResult<G : ItemLayoutResult<G>> internal constructor(capacity: Int) {
+
+    /**Item 在屏幕上的左边坐标 */
+    var lefts = IntArray(capacity)
+        protected set
+
+    /**Item 在屏幕上的顶部坐标 */
+    var tops = IntArray(capacity)
+        protected set
+
+    /**缩放系数，没有缩放时为 1 */
+    var scales = FloatArray(capacity)
+        protected set
+
+    /**半透值，没有半透时为 1 */
+    var alphas = FloatArray(capacity)
+        protected set
+
+    /**灰度值，没有灰度时为 1 */
+    var greys = FloatArray(capacity)
+        protected set
+
+    /**Y 轴旋转角度，没有旋转时为 0 */
+    var rotations = FloatArray(capacity)
+        protected set
+
+    /**自定义的效果 */
+    private val customTransformers = ArrayList<ItemTransformer<G>>()
+
+    /**当前生效的效果，内置效果在前，自定义效果在后；按下标遍历，每一帧不创建迭代器 */
+    private val transformers = ArrayList<ItemTransformer<G>>()
+
+    /**当前生效的效果会写入的属性，见 [ItemTransformer.properties] */
+    var properties = 0
+        private set
+
+    @Suppress("UNCHECKED_CAST")
+    private val self = this as G
+
+    /**
+     * 结果数组的长度不同时重新分配，只在 Item 个数上限变化时调用
+     */
+    protected fun resizeResults(capacity: Int) {
+        if (lefts.size == capacity) return
+        lefts = IntArray(capacity)
+        tops = IntArray(capacity)
+        scales = FloatArray(capacity)
+        alphas = FloatArray(capacity)
+        greys = FloatArray(capacity)
+        rotations = FloatArray(capacity)
+    }
+
+    /**
+     * 添加自定义效果，在内置效果之后执行
+     */
+    fun addTransformer(transformer: ItemTransformer<G>) {
+        customTransformers.add(transformer)
+        updateTransformers()
+    }
+
+    fun removeTransformer(transformer: ItemTransformer<G>) {
+        if (customTransformers.remove(transformer)) {
+            updateTransformers()
+        }
+    }
+
+    /**
+     * 当前开启的内置效果，按执行顺序添加到 [out] 中
+     */
+    protected abstract fun collectBuiltInTransformers(out: MutableList<ItemTransformer<G>>)
+
+    /**
+     * 根据开启的效果重建 [transformers]，只在效果变化时调用，不在每一帧调用
+     */
+    protected fun updateTransformers() {
+        transformers.clear()
+        collectBuiltInTransformers(transformers)
+        transformers.addAll(customTransformers)
+        var properties = 0
+        for (i in 0 until transformers.size) properties = properties or transformers[i].properties
+        this.properties = properties
+    }
+
+    /**
+     * 将第 [slot] 个 Item 的效果重置为初始值并依次执行所有效果，位置需要在调用前写入
+     */
+    protected fun transform(slot: Int) {
+        scales[slot] = 1f
+        alphas[slot] = 1f
+        greys[slot] = 1f
+        rotations[slot] = 0f
+        for (i in 0 until transformers.size) {
+            transformers[i].transform(self, slot)
+        }
+    }
+}
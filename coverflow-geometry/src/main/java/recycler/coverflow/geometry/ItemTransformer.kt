@@ -0,0 +1,87 @@
+package recycler.coverflow.geometry
+
+/**
+ * Item 效果插件，在 [CoverFlowGeometry.layout]、[recycler.stacklayout.geometry.StackGeometry.layout]
+ * 计算每个 Item 时调用
+ *
+ * 实现中读取 [CoverFlowGeometry.xs] 等布局结果，将效果写入 [ItemLayoutResult.scales]、
+ * [ItemLayoutResult.alphas]、[ItemLayoutResult.greys]、[ItemLayoutResult.rotations] 中第 slot 个元素，
+ * 也可以修改 [ItemLayoutResult.lefts]、[ItemLayoutResult.tops]。多个插件按添加顺序依次执行，
+ * 后面的插件可以在前面插件的结果上继续修改
+ *
+ * Note: 每一帧的每个 Item 都会调用，不要在这里分配对象
+ *
+ * @param G 插件使用的布局计算类型，只读写 [ItemLayoutResult] 中的结果时两种布局都可以使用
+ */
+interface ItemTransformer<in G : ItemLayoutResult<*>> {
+    /**
+     * 会写入的属性，[PROPERTY_SCALE]、[PROPERTY_ALPHA]、[PROPERTY_GREY]、[PROPERTY_ROTATION_Y] 的组合，
+     * 布局器只会将这些属性应用到 View 上
+     */
+    val properties: Int
+
+    /**
+     * @param geometry 布局参数及计算结果
+     * @param slot 在结果数组中的下标
+     */
+    fun transform(geometry: G, slot: Int)
+
+    companion object {
+        /**缩放，[ItemLayoutResult.scales] */
+        const val PROPERTY_SCALE = 1
+
+        /**半透，[ItemLayoutResult.alphas] */
+        const val PROPERTY_ALPHA = 1 shl 1
+
+        /**灰度，[ItemLayoutResult.greys] */
+        const val PROPERTY_GREY = 1 shl 2
+
+        /**Y 轴旋转，[ItemLayoutResult.rotations] */
+        const val PROPERTY_ROTATION_Y = 1 shl 3
+    }
+}
+
+/**
+ * 叠加缩放，非平面滚动时使用
+ */
+object ScaleTransformer : ItemTransformer<CoverFlowGeometry> {
+    override val properties = ItemTransformer.PROPERTY_SCALE
+
+    override fun transform(geometry: CoverFlowGeometry, slot: Int) {
+        geometry.scales[slot] = geometry.baseScales[slot]
+    }
+}
+
+/**
+ * Item半透渐变
+ */
+object AlphaTransformer : ItemTransformer<CoverFlowGeometry> {
+    override val properties = ItemTransformer.PROPERTY_ALPHA
+
+    override fun transform(geometry: CoverFlowGeometry, slot: Int) {
+        geometry.alphas[slot] = geometry.computeAlpha(geometry.xs[slot], geometry.baseScales[slot])
+    }
+}
+
+/**
+ * Item灰度渐变
+ */
+object GreyTransformer : ItemTransformer<CoverFlowGeometry> {
+    override val properties = ItemTransformer.PROPERTY_GREY
+
+    override fun transform(geometry: CoverFlowGeometry, slot: Int) {
+        geometry.greys[slot] = geometry.computeGreyScale(geometry.xs[slot])
+    }
+}
+
+/**
+ * Item 3D 倾斜
+ */
+object Rotation3DTransformer : ItemTransformer<CoverFlowGeometry> {
+    override val properties = ItemTransformer.PROPERTY_ROTATION_Y
+
+    override fun transform(geometry: CoverFlowGeometry, slot: Int) {
+        val x = geometry.xs[slot]
+        geometry.rotations[slot] = geometry.computeRotationY(x, x + geometry.itemWidth, 0)
+    }
+}
@@ -0,0 +1,183 @@
+package recycler.coverflow.geometry
+
+/**
+ * 宽度不同的 Item 的位置索引
+ *
+ * 相邻两个 Item 中心之间的距离为 interval 加上两个 Item 比默认宽度多出的宽度的一半，
+ * 即相邻 Item 叠加的部分与默认宽度时相同。这些距离保存在树状数组（Fenwick tree）中，
+ * 位置与偏移量之间的相互转换都是 O(log n)，修改一个 Item 的宽度也是 O(log n)
+ *
+ * 没有测量过的 Item 使用默认宽度，只有布局到可见范围附近时才测量
+ */
+class ItemWidthIndex {
+    /**Item 个数 */
+    var size = 0
+        private set
+
+    /**没有测量过的 Item 的宽度 */
+    var defaultWidth = 0
+        private set
+
+    /**两个默认宽度的 Item 之间的间隔 */
+    var interval = 0
+        private set
+
+    /**测量出的宽度，0 表示没有测量过 */
+    private var widths = IntArray(0)
+
+    /**树状数组，下标从 1 开始，第 i 个元素对应位置 i - 1 的 Item 中心到下一个 Item 中心的距离 */
+    private var tree = LongArray(1)
+
+    /**
+     * 设置 Item 个数及默认参数，参数没有变化时不做任何事；个数变化时保留已经测量过的宽度
+     */
+    fun setup(size: Int, defaultWidth: Int, interval: Int) {
+        if (size == this.size && defaultWidth == this.defaultWidth && interval == this.interval) return
+        if (size != this.size) {
+            widths = widths.copyOf(size)
+            this.size = size
+        }
+        this.defaultWidth = defaultWidth
+        this.interval = interval
+        rebuild()
+    }
+
+    /**
+     * 清空测量过的宽度，adapter 数据整体变化时调用
+     */
+    fun clear() {
+        widths.fill(0)
+        rebuild()
+    }
+
+    /**
+     * 位置为 [position] 的 Item 的宽度，没有测量过时为默认宽度
+     */
+    fun width(position: Int): Int {
+        val width = widths[position]
+        return if (width > 0) width else defaultWidth
+    }
+
+    /**
+     * 记录测量出的宽度
+     * @return 宽度是否发生了变化，变化时后面所有 Item 的偏移量都会变化
+     */
+    fun setWidth(position: Int, width: Int): Boolean {
+        val oldWidth = width(position)
+        widths[position] = width
+        if (width(position) == oldWidth) return false
+        val prev = if (position == 0) size - 1 else position - 1
+        updateSpacing(prev)
+        if (prev != position) updateSpacing(position)
+        return true
+    }
+
+    /**
+     * 位置为 [position] 的 Item 中心相对于位置 0 的 Item 中心的偏移量
+     * @param position 0 到 [size]，为 size 时即循环一圈的总长度
+     */
+    fun offsetOf(position: Int): Long {
+        var sum = 0L
+        var i = position
+        while (i > 0) {
+            sum += tree[i]
+            i -= i and -i
+        }
+        return sum
+    }
+
+    /**
+     * 循环一圈的总长度，包括最后一个 Item 到第一个 Item 的距离
+     */
+    val total: Long
+        get() = offsetOf(size)
+
+    /**
+     * 偏移量不超过 [offset] 的最大位置
+     * @return 0 到 size - 1
+     */
+    fun positionAt(offset: Long): Int {
+        if (size == 0 || offset <= 0) return 0
+        var position = 0
+        var remaining = offset
+        var step = Integer.highestOneBit(size)
+        while (step > 0) {
+            val next = position + step
+            if (next <= size && tree[next] <= remaining) {
+                position = next
+                remaining -= tree[next]
+            }
+            step = step shr 1
+        }
+        return if (position > size - 1) size - 1 else position
+    }
+
+    /**
+     * 在 [positionStart] 插入 [count] 个没有测量过的 Item
+     */
+    fun insert(positionStart: Int, count: Int) {
+        val newWidths = IntArray(size + count)
+        System.arraycopy(widths, 0, newWidths, 0, positionStart)
+        System.arraycopy(widths, positionStart, newWidths, positionStart + count, size - positionStart)
+        widths = newWidths
+        size += count
+        rebuild()
+    }
+
+    /**
+     * 从 [positionStart] 开始删除 [count] 个 Item
+     */
+    fun remove(positionStart: Int, count: Int) {
+        val newWidths = IntArray(size - count)
+        System.arraycopy(widths, 0, newWidths, 0, positionStart)
+        System.arraycopy(widths, positionStart + count, newWidths, positionStart, size - positionStart - count)
+        widths = newWidths
+        size -= count
+        rebuild()
+    }
+
+    /**
+     * 将 Item 从 [from] 移动到 [to]
+     */
+    fun move(from: Int, to: Int) {
+        if (from == to) return
+        val width = widths[from]
+        if (from < to) {
+            System.arraycopy(widths, from + 1, widths, from, to - from)
+        } else {
+            System.arraycopy(widths, to, widths, to + 1, from - to)
+        }
+        widths[to] = width
+        rebuild()
+    }
+
+    /**
+     * 位置为 [position] 的 Item 中心到下一个 Item 中心的距离，最后一个 Item 的下一个为第一个 Item
+     */
+    private fun spacing(position: Int): Int {
+        val next = if (position + 1 == size) 0 else position + 1
+        val spacing = interval + (width(position) - defaultWidth + width(next) - defaultWidth) / 2
+        return if (spacing < 1) 1 else spacing
+    }
+
+    private fun updateSpacing(position: Int) {
+        val delta = spacing(position) - (offsetOf(position + 1) - offsetOf(position))
+        var i = position + 1
+        while (i <= size) {
+            tree[i] += delta
+            i += i and -i
+        }
+    }
+
+    /**
+     * O(n) 重建树状数组
+     */
+    private fun rebuild() {
+        if (tree.size != size + 1) tree = LongArray(size + 1)
+        for (i in 1..size) tree[i] = spacing(i - 1).toLong()
+        for (i in 1..size) {
+            val parent = i + (i and -i)
+            if (parent <= size) tree[parent] += tree[i]
+        }
+    }
+}
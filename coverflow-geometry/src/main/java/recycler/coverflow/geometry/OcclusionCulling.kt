@@ -0,0 +1,116 @@
+package recycler.coverflow.geometry
+
+import kotlin.math.ceil
+import kotlin.math.floor
+
+/**
+ * 计算 Item 被之后绘制的 Item 遮挡后剩余的可见范围，用于绘制时裁剪或跳过被完全遮挡的 Item
+ *
+ * Item 按绘制顺序添加，每个 Item 由滚动方向上的范围 [start, end) 及垂直方向上的范围 [crossStart, crossEnd) 描述。
+ * 只有不透明、且在垂直方向上完全覆盖被遮挡 Item 的 Item 才算遮挡；遮挡只从两端裁剪，
+ * 遮挡范围在被遮挡 Item 中间时不裁剪，结果总是保守的
+ *
+ * 数组只在 Item 个数增加时重新分配，每一帧计算不分配对象
+ */
+class OcclusionCulling {
+    /**Item 个数 */
+    var count = 0
+        private set
+
+    private var starts = FloatArray(0)
+    private var ends = FloatArray(0)
+    private var crossStarts = FloatArray(0)
+    private var crossEnds = FloatArray(0)
+    private var opaques = BooleanArray(0)
+    private var visibleStarts = IntArray(0)
+    private var visibleEnds = IntArray(0)
+
+    /**
+     * 开始新的一次计算
+     * @param count Item 个数
+     */
+    fun reset(count: Int) {
+        if (starts.size < count) {
+            starts = FloatArray(count)
+            ends = FloatArray(count)
+            crossStarts = FloatArray(count)
+            crossEnds = FloatArray(count)
+            opaques = BooleanArray(count)
+            visibleStarts = IntArray(count)
+            visibleEnds = IntArray(count)
+        }
+        this.count = count
+    }
+
+    /**
+     * 设置第 [order] 个绘制的 Item 的范围
+     * @param opaque Item 是否不透明，可以遮挡之前绘制的 Item
+     */
+    fun setItem(order: Int, start: Float, end: Float, crossStart: Float, crossEnd: Float, opaque: Boolean) {
+        starts[order] = start
+        ends[order] = end
+        crossStarts[order] = crossStart
+        crossEnds[order] = crossEnd
+        opaques[order] = opaque
+    }
+
+    /**
+     * 计算每个 Item 的可见范围，之后通过 [visibleStart]、[visibleEnd] 获取
+     *
+     * 可见范围取整到像素向外扩展，遮挡范围取整到像素向内收缩，裁剪边缘不会露出缝隙
+     */
+    fun compute() {
+        for (i in 0 until count) {
+            var start = floor(starts[i])
+            var end = ceil(ends[i])
+            var changed = true
+            // 从两端不断裁剪，直到没有遮挡 Item 覆盖剩余范围的端点
+            while (changed && start < end) {
+                changed = false
+                for (j in i + 1 until count) {
+                    if (!opaques[j] || crossStarts[j] > crossStarts[i] || crossEnds[j] < crossEnds[i]) continue
+                    val occluderStart = ceil(starts[j])
+                    val occluderEnd = floor(ends[j])
+                    if (occluderStart >= occluderEnd) continue
+                    if (occluderStart <= start && occluderEnd > start) {
+                        start = occluderEnd
+                        changed = true
+                    }
+                    if (occluderEnd >= end && occluderStart < end) {
+                        end = occluderStart
+                        changed = true
+                    }
+                    if (start >= end) break
+                }
+            }
+            visibleStarts[i] = start.toInt()
+            visibleEnds[i] = if (end > start) end.toInt() else start.toInt()
+        }
+    }
+
+    /**第 [order] 个绘制的 Item 可见范围的起点 */
+    fun visibleStart(order: Int): Int = visibleStarts[order]
+
+    /**第 [order] 个绘制的 Item 可见范围的终点，与起点相同时表示完全被遮挡 */
+    fun visibleEnd(order: Int): Int = visibleEnds[order]
+
+    /**第 [order] 个绘制的 Item 是否完全被遮挡 */
+    fun isCulled(order: Int): Boolean = visibleEnds[order] <= visibleStarts[order]
+
+    /**第 [order] 个绘制的 Item 的面积 */
+    fun area(order: Int): Float {
+        return (ends[order] - starts[order]) * (crossEnds[order] - crossStarts[order])
+    }
+
+    /**第 [order] 个绘制的 Item 没有被遮挡部分的面积 */
+    fun visibleArea(order: Int): Float {
+        val start = maxOf(starts[order], visibleStarts[order].toFloat())
+        val end = minOf(ends[order], visibleEnds[order].toFloat())
+        return if (end > start) (end - start) * (crossEnds[order] - crossStarts[order]) else 0f
+    }
+
+    /**第 [order] 个绘制的 Item 是否有部分被遮挡 */
+    fun isClipped(order: Int): Boolean {
+        return visibleStarts[order] > floor(starts[order]).toInt() || visibleEnds[order] < ceil(ends[order]).toInt()
+    }
+}
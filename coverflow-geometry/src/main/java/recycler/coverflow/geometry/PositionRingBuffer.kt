@@ -0,0 +1,72 @@
+package recycler.coverflow.geometry
+
+/**
+ * 记录中间位置附近已 attach 的 Item 的位置
+ *
+ * 循环模式下位置会无限增长（也可能为负值），这里使用固定容量的环形数组，以位置对容量取模作为下标，
+ * 查找、添加、删除都是 O(1)，内存也不会随滚动距离增长。只要同时 attach 的 Item 都在连续的
+ * [capacity] 个位置以内就不会冲突，冲突时旧的记录会被覆盖
+ *
+ * @param capacity 容量，必须为 2 的幂
+ */
+class PositionRingBuffer(val capacity: Int = DEFAULT_CAPACITY) {
+    private val mask = capacity - 1
+    private val positions = IntArray(capacity)
+
+    /**[shift] 时暂存原来的位置，避免每次平移分配数组 */
+    private val scratch = IntArray(capacity)
+
+    /**当前记录的个数 */
+    var size = 0
+        private set
+
+    init {
+        require(capacity > 0 && capacity and mask == 0) { "capacity must be a power of two: $capacity" }
+        positions.fill(EMPTY)
+    }
+
+    /**
+     * 记录位置为 [position] 的 Item 已 attach
+     */
+    fun put(position: Int) {
+        val slot = position and mask
+        if (positions[slot] == EMPTY) size++
+        positions[slot] = position
+    }
+
+    fun isAttached(position: Int): Boolean {
+        return position != EMPTY && positions[position and mask] == position
+    }
+
+    fun remove(position: Int) {
+        if (isAttached(position)) {
+            positions[position and mask] = EMPTY
+            size--
+        }
+    }
+
+    /**
+     * 所有记录的位置平移 [delta]，循环模式归一化偏移量时使用
+     */
+    fun shift(delta: Int) {
+        if (delta == 0 || size == 0) return
+        System.arraycopy(positions, 0, scratch, 0, capacity)
+        clear()
+        for (slot in 0 until capacity) {
+            if (scratch[slot] == EMPTY) continue
+            put(scratch[slot] + delta)
+        }
+    }
+
+    fun clear() {
+        positions.fill(EMPTY)
+        size = 0
+    }
+
+    companion object {
+        /**默认容量，大于 [CoverFlowGeometry.MAX_ATTACHED_COUNT] 的两倍 */
+        const val DEFAULT_CAPACITY = 16
+
+        private const val EMPTY = Int.MIN_VALUE
+    }
+}
@@ -0,0 +1,61 @@
+package recycler.stacklayout.geometry
+
+/**
+ * 层叠布局中每一级 Item 的缩放、半透曲线
+ *
+ * 曲线只在 [StackGeometry] 的最大显示个数或曲线本身变化时计算一次，保存为按级数索引的查找表，
+ * 滑动时每一帧只需要查表插值，与层叠的深度无关
+ */
+interface StackDepthCurve {
+    /**
+     * @param depth 第几级，1 为最顶部之后的第一个 Item，最大为 [maxCount]
+     * @param maxCount 最多显示的级数（不包括最顶部的那个）
+     * @return 该级 Item 的缩放比例
+     */
+    fun scale(depth: Int, maxCount: Int): Float
+
+    /**
+     * @param depth 第几级，1 为最顶部之后的第一个 Item，最大为 [maxCount]
+     * @param maxCount 最多显示的级数（不包括最顶部的那个）
+     * @return 该级 Item 的半透值
+     */
+    fun alpha(depth: Int, maxCount: Int): Float
+
+    /**
+     * 关键帧曲线：关键帧均匀分布在第 1 级到第 maxCount 级之间，中间的级数线性插值；
+     * 关键帧个数与 maxCount 相同时，第 i 级即为第 i - 1 个关键帧
+     */
+    class Keyframes(scales: FloatArray, alphas: FloatArray) : StackDepthCurve {
+        private val scales = scales.copyOf()
+        private val alphas = alphas.copyOf()
+
+        init {
+            require(scales.isNotEmpty() && alphas.isNotEmpty()) { "keyframes must not be empty" }
+        }
+
+        override fun scale(depth: Int, maxCount: Int): Float {
+            return interpolate(scales, depth, maxCount)
+        }
+
+        override fun alpha(depth: Int, maxCount: Int): Float {
+            return interpolate(alphas, depth, maxCount)
+        }
+
+        private fun interpolate(keyframes: FloatArray, depth: Int, maxCount: Int): Float {
+            if (keyframes.size == 1 || maxCount <= 1) return keyframes[0]
+            val t = (depth - 1).toFloat() / (maxCount - 1) * (keyframes.size - 1)
+            val index = t.toInt().coerceIn(0, keyframes.size - 2)
+            val fraction = t - index
+            return keyframes[index] + (keyframes[index + 1] - keyframes[index]) * fraction
+        }
+    }
+
+    companion object {
+        /**默认曲线，3 级时与原来固定的缩放、半透值相同 */
+        @JvmField
+        val DEFAULT: StackDepthCurve = Keyframes(
+            floatArrayOf(0.8957f, 0.776f, 0.625f),
+            floatArrayOf(0.5f, 0.15f, 0.05f)
+        )
+    }
+}
@@ -0,0 +1,227 @@
+package recycler.stacklayout.geometry
+
+import recycler.coverflow.geometry.AdapterUpdateMath
+import recycler.coverflow.geometry.FlingMath
+import recycler.coverflow.geometry.ItemLayoutResult
+import recycler.coverflow.geometry.ItemTransformer
+
+/**
+ * 层叠布局中每个 Item 的位置、缩放、半透的计算，不依赖 Android
+ *
+ * 最顶部的 Item 跟随手指滑动，缩放不变；后面的 Item 由 [StackDepthTransformer] 根据最顶部 Item 滑动的比例，
+ * 在 [depthCurve] 相邻两级之间插值，之后执行 [addTransformer] 添加的自定义效果。
+ * 结果保存在 [lefts]、[scales]、[alphas] 等数组中，第 i 个元素对应位置为 topItemPosition + i 的 Item
+ */
+class StackGeometry : ItemLayoutResult<StackGeometry>(1) {
+    /**屏幕上最多显示多少个itemView（不包括最顶部的那个） */
+    var maxCount = 0
+        private set
+
+    /**每个itemView之间的间隔空隙 */
+    var itemSpace = 24
+
+    /**Item宽 */
+    var itemWidth = 0
+
+    /**Item数量 */
+    var itemCount = 0
+
+    /**循环滚动 */
+    var isLoop = true
+
+    /**顶部之后每一级 Item 的缩放、半透曲线，变化时重新计算查找表 */
+    var depthCurve: StackDepthCurve = StackDepthCurve.DEFAULT
+        set(value) {
+            if (value === field) return
+            field = value
+            bakeTables()
+        }
+
+    /**第 i 级的缩放比例，第 0 级为最顶部的 Item */
+    private var scaleTable = floatArrayOf(1f)
+
+    /**第 i - 1 级与第 i 级缩放比例的差，滑动时按最顶部 Item 滑动的比例插值 */
+    private var scaleDeltas = FloatArray(1)
+
+    /**第 i 级的半透值 */
+    private var alphaTable = floatArrayOf(1f)
+
+    /**第 i - 1 级与第 i 级半透值的差 */
+    private var alphaDeltas = FloatArray(1)
+
+    /**[layout] 计算出的 Item 个数 */
+    var count = 0
+        private set
+
+    /**[layout] 时最顶部 Item 移动的百分比 */
+    var topItemScrollPercent = 0f
+        private set
+
+    init {
+        updateTransformers()
+    }
+
+    /**
+     * 设置最多显示的 Item 个数，只有个数变化时才重新分配结果数组
+     *
+     * Note: [lefts] 为未修正缩放偏移时的左边坐标，实际的左边坐标见 [scaledLeft]
+     */
+    fun setMaxCount(maxCount: Int) {
+        this.maxCount = maxCount
+        resizeResults(maxCount + 1)
+        if (scaleTable.size != maxCount + 1) {
+            bakeTables()
+        }
+    }
+
+    override fun collectBuiltInTransformers(out: MutableList<ItemTransformer<StackGeometry>>) {
+        out.add(StackDepthTransformer)
+    }
+
+    /**
+     * 按 [maxCount] 计算每一级的缩放、半透以及相邻两级的差
+     */
+    private fun bakeTables() {
+        val size = maxCount + 1
+        if (scaleTable.size != size) {
+            scaleTable = FloatArray(size)
+            scaleDeltas = FloatArray(size)
+            alphaTable = FloatArray(size)
+            alphaDeltas = FloatArray(size)
+        }
+        scaleTable[0] = 1.0f
+        alphaTable[0] = 1.0f
+        for (depth in 1 until size) {
+            scaleTable[depth] = depthCurve.scale(depth, maxCount)
+            alphaTable[depth] = depthCurve.alpha(depth, maxCount)
+            scaleDeltas[depth] = scaleTable[depth - 1] - scaleTable[depth]
+            alphaDeltas[depth] = alphaTable[depth - 1] - alphaTable[depth]
+        }
+    }
+
+    /**
+     * 计算每个itemView的位置和缩放比例等数据
+     * @param topItemPosition 最顶部 Item 的位置
+     * @param topItemScrollWidth 最顶部 Item 当前滑动的距离
+     * @return 最顶部 Item 移动的百分比
+     */
+    fun layout(topItemPosition: Int, topItemScrollWidth: Int): Float {
+        val topItemScrollPercent = topItemScrollWidth * 1.0f / itemWidth //移动的百分比
+        this.topItemScrollPercent = topItemScrollPercent
+
+        lefts[0] = -1 * topItemScrollWidth //最顶部item滑动缩放不变
+        tops[0] = 0
+        transform(0)
+        val spaceOffset = (itemSpace * (1 - topItemScrollPercent)).toInt()
+        var itemPositionIndex = topItemPosition + 1
+        var i = 1
+        while (i < maxCount + 1) {
+            if (!isLoop && itemPositionIndex >= itemCount) {
+                break
+            }
+            //如果以往中心缩放来算，X和Y都向中心缩放
+            lefts[i] = (i - 1) * itemSpace + spaceOffset
+            tops[i] = 0
+            transform(i)
+            i++
+            itemPositionIndex++
+        }
+        count = i
+        return topItemScrollPercent
+    }
+
+    /**
+     * 第 [index] 级 Item 实际的缩放比例，根据最顶部 Item 滑动的比例在查找表相邻两级之间插值，最顶部的 Item 为 1
+     */
+    fun depthScale(index: Int): Float {
+        return scaleTable[index] + scaleDeltas[index] * topItemScrollPercent
+    }
+
+    /**
+     * 第 [index] 级 Item 实际的半透值，最顶部的 Item 为 1
+     */
+    fun depthAlpha(index: Int): Float {
+        return alphaTable[index] + alphaDeltas[index] * topItemScrollPercent
+    }
+
+    /**
+     * 惯性滑动时需要停留的最顶部 Item 位置，偏移量不能小于 0，非循环模式下不超过最后一个 Item
+     * @param scrollOffset 向左滑动的总距离
+     * @param flingDistance 根据速度估算出的惯性滑动距离
+     * @param maxCards 一次惯性滑动最多越过的 Item 个数
+     */
+    fun flingTargetPosition(scrollOffset: Int, flingDistance: Int, maxCards: Int): Int {
+        if (itemWidth <= 0) return 0
+        val target = FlingMath.targetPosition(scrollOffset.toLong(), flingDistance, itemWidth, maxCards)
+        return if (isLoop || itemCount <= 0) Math.max(target, 0) else target.coerceIn(0, itemCount - 1)
+    }
+
+    /**
+     * 在 [positionStart] 插入 [count] 个 Item 后的偏移量，保持最顶部的 Item 不变，并更新 [itemCount]
+     */
+    fun scrollOffsetAfterItemsAdded(scrollOffset: Int, positionStart: Int, count: Int): Int {
+        val top = topPosition(scrollOffset)
+        val adapterPosition = AdapterUpdateMath.positionAfterAdd(adapterPosition(top), positionStart, count)
+        return remapScrollOffset(scrollOffset, top, adapterPosition, itemCount + count)
+    }
+
+    /**
+     * 从 [positionStart] 开始删除 [count] 个 Item 后的偏移量，保持最顶部的 Item 不变，
+     * 最顶部的 Item 被删除时显示它后面的 Item，并更新 [itemCount]
+     */
+    fun scrollOffsetAfterItemsRemoved(scrollOffset: Int, positionStart: Int, count: Int): Int {
+        val top = topPosition(scrollOffset)
+        val adapterPosition = AdapterUpdateMath.positionAfterRemove(adapterPosition(top), positionStart, count)
+        return remapScrollOffset(scrollOffset, top, adapterPosition, itemCount - count)
+    }
+
+    /**
+     * 将 Item 从 [from] 移动到 [to] 后的偏移量，保持最顶部的 Item 不变
+     */
+    fun scrollOffsetAfterItemMoved(scrollOffset: Int, from: Int, to: Int): Int {
+        val top = topPosition(scrollOffset)
+        val adapterPosition = AdapterUpdateMath.positionAfterMove(adapterPosition(top), from, to)
+        return remapScrollOffset(scrollOffset, top, adapterPosition, itemCount)
+    }
+
+    private fun topPosition(scrollOffset: Int): Int {
+        return if (itemWidth > 0) scrollOffset / itemWidth else 0
+    }
+
+    private fun adapterPosition(position: Int): Int {
+        return if (itemCount > 0) position % itemCount else position
+    }
+
+    private fun remapScrollOffset(scrollOffset: Int, top: Int, newAdapterPosition: Int, newCount: Int): Int {
+        if (itemWidth <= 0) {
+            itemCount = newCount
+            return scrollOffset
+        }
+        val newOffset = AdapterUpdateMath.remapOffset(
+            scrollOffset.toLong(), itemWidth, top, itemCount, newAdapterPosition, newCount, isLoop
+        )
+        itemCount = newCount
+        return Math.max(newOffset, 0L).toInt()
+    }
+
+    /**
+     * 以中心缩放后 Item 实际的左边坐标
+     */
+    fun scaledLeft(index: Int): Int {
+        val scaleWidth = (itemWidth * scales[index]).toInt() //缩放之后的宽度
+        val scaledWidth = itemWidth - scaleWidth //宽度被缩放了多少
+        return scaledWidth / 2 + lefts[index]
+    }
+}
+
+/**
+ * 层叠的缩放、半透，按 [StackGeometry.depthCurve] 的查找表插值
+ */
+object StackDepthTransformer : ItemTransformer<StackGeometry> {
+    override val properties = ItemTransformer.PROPERTY_SCALE or ItemTransformer.PROPERTY_ALPHA
+
+    override fun transform(geometry: StackGeometry, slot: Int) {
+        geometry.scales[slot] = geometry.depthScale(slot)
+        geometry.alphas[slot] = geometry.depthAlpha(slot)
+    }
+}
@@ -0,0 +1,557 @@
+package recycler.coverflow.geometry
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.lang.management.ManagementFactory
+
+class CoverFlowGeometryTest {
+
+    private fun newGeometry(itemCount: Int, isLoop: Boolean): CoverFlowGeometry {
+        val geometry = CoverFlowGeometry()
+        geometry.set(
+            startX = 240, startY = 0, itemWidth = 600, itemHeight = 800,
+            horizontalSpace = 1080, intervalDistance = 150, itemCount = itemCount, isLoop = isLoop
+        )
+        return geometry
+    }
+
+    /**
+     * 模拟一帧滑动中 layoutItems 需要做的计算
+     */
+    private fun scrollStep(geometry: CoverFlowGeometry, offset: Long): Int {
+        var checksum = if (geometry.layout(offset)) 1 else 0
+        for (slot in 0 until geometry.count) {
+            checksum += geometry.adapterPositions[slot] + geometry.lefts[slot] +
+                    (geometry.scales[slot] + geometry.alphas[slot] + geometry.greys[slot] + geometry.rotations[slot]).toInt()
+        }
+        return checksum
+    }
+
+    private fun allocatedBytes(): Long {
+        val bean = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+        return bean.getThreadAllocatedBytes(Thread.currentThread().id)
+    }
+
+    @Test
+    fun scrollPath_allocatesNothing() {
+        val geometry = newGeometry(itemCount = 7, isLoop = true)
+        geometry.setEffects(isFlat = false, isAlphaItem = true, isGreyItem = true, is3DItem = true)
+        var sink = 0
+        // 预热，确保相关类都已加载
+        for (step in 0 until 10_000) sink += scrollStep(geometry, step * 7L)
+
+        // 读取分配计数本身可能分配少量对象，先测出这个开销
+        var overhead = Long.MAX_VALUE
+        repeat(5) {
+            val overheadStart = allocatedBytes()
+            overhead = minOf(overhead, allocatedBytes() - overheadStart)
+        }
+
+        // 取多轮中的最小值，排除 JIT 等偶发的干扰；如果每一步都有分配，每一轮都会有上万次分配
+        var allocated = Long.MAX_VALUE
+        repeat(5) {
+            val start = allocatedBytes()
+            var offset = 0L
+            for (step in 0 until 10_000) {
+                offset += if (step < 5_000) 13 else -29
+                sink += scrollStep(geometry, offset)
+            }
+            allocated = minOf(allocated, allocatedBytes() - start - overhead)
+        }
+
+        assertEquals("bytes allocated by 10k scroll steps", 0L, allocated)
+        assertTrue(sink != Int.MIN_VALUE)
+    }
+
+    @Test
+    fun fling_requestsLayoutOncePerCardBoundary() {
+        val geometry = newGeometry(itemCount = 7, isLoop = true)
+        geometry.updateAttachedRange(0)
+
+        // 模拟一次 60fps 的 fling，速度逐帧衰减
+        var velocity = 12_000f
+        var offset = 0L
+        var frames = 0
+        var layoutRequests = 0
+        var lastCenter = geometry.centerPosition(offset)
+        var boundaries = 0
+        var centerChangedFrames = 0
+        while (velocity > 50f) {
+            offset += (velocity / 60).toInt()
+            velocity *= 0.95f
+            frames++
+            if (geometry.updateAttachedRange(offset)) layoutRequests++
+            val center = geometry.centerPosition(offset)
+            boundaries += Math.abs(center - lastCenter)
+            if (center != lastCenter) centerChangedFrames++
+            lastCenter = center
+        }
+
+        assertTrue("fling should cross several cards", boundaries > 5)
+        assertTrue("frames: $frames, boundaries: $boundaries", frames > boundaries)
+        // 一帧越过多个 Item 时只请求一次
+        assertEquals(centerChangedFrames, layoutRequests)
+        assertTrue(layoutRequests <= boundaries)
+    }
+
+    @Test
+    fun attachedRange_followsCenterPosition() {
+        val geometry = newGeometry(itemCount = 7, isLoop = true)
+        assertTrue(geometry.updateAttachedRange(0))
+        assertEquals(-3, geometry.attachedMin)
+        assertEquals(3, geometry.attachedMax)
+        // 还没有越过半个间隔，attach 的 Item 不变
+        assertTrue(!geometry.updateAttachedRange(74))
+        assertTrue(geometry.updateAttachedRange(75))
+        assertEquals(-2, geometry.attachedMin)
+        assertEquals(4, geometry.attachedMax)
+        // 跳到很远的位置，原来的 Item 全部回收
+        assertTrue(geometry.updateAttachedRange(150 * 100))
+        assertEquals(97, geometry.attachedMin)
+        assertEquals(103, geometry.attachedMax)
+    }
+
+    @Test
+    fun preLayoutExtraItems_extendBothEndsWithinBounds() {
+        val loop = newGeometry(itemCount = 20, isLoop = true)
+        loop.layout(0, 2)
+        assertEquals(-5, loop.attachedMin)
+        assertEquals(5, loop.attachedMax)
+        assertEquals(11, loop.count)
+        assertEquals(15, loop.adapterPositions[0])
+        // 最多多计算 MAX_PRE_LAYOUT_EXTRA 个，结果数组不会越界
+        loop.layout(0, 100)
+        assertEquals(CoverFlowGeometry.MAX_LAYOUT_COUNT, loop.count)
+
+        // 非循环模式下不超出 Item 范围
+        val flat = newGeometry(itemCount = 5, isLoop = false)
+        flat.layout(0, 2)
+        assertEquals(0, flat.attachedMin)
+        assertEquals(4, flat.attachedMax)
+        assertEquals(5, flat.count)
+    }
+
+    @Test
+    fun centerPosition_roundsToNearestItem() {
+        val geometry = newGeometry(itemCount = 7, isLoop = true)
+        assertEquals(0, geometry.centerPosition(74))
+        assertEquals(1, geometry.centerPosition(75))
+        assertEquals(0, geometry.centerPosition(-74))
+        assertEquals(-1, geometry.centerPosition(-75))
+    }
+
+    @Test
+    fun window_isClampedWhenNotLooping() {
+        val geometry = newGeometry(itemCount = 7, isLoop = false)
+        geometry.updateWindow(0)
+        assertEquals(0, geometry.windowMin)
+        assertEquals(3, geometry.windowMax)
+        geometry.updateWindow(6)
+        assertEquals(3, geometry.windowMin)
+        assertEquals(6, geometry.windowMax)
+    }
+
+    @Test
+    fun adapterPosition_wrapsNegativePositionsInLoopMode() {
+        val geometry = newGeometry(itemCount = 7, isLoop = true)
+        assertEquals(6, geometry.adapterPosition(-1))
+        assertEquals(0, geometry.adapterPosition(-7))
+        assertEquals(1, geometry.adapterPosition(15))
+    }
+
+    @Test
+    fun layout_centerItemIsNotTransformed() {
+        val geometry = newGeometry(itemCount = 7, isLoop = false)
+        geometry.setEffects(isFlat = false, isAlphaItem = true, isGreyItem = true, is3DItem = true)
+        geometry.layout(300)
+        val slot = geometry.slotOf(2)
+        assertEquals(2, geometry.positions[slot])
+        assertEquals(240, geometry.lefts[slot])
+        assertEquals(0, geometry.tops[slot])
+        assertEquals(1f, geometry.scales[slot], 0f)
+        assertEquals(1f, geometry.alphas[slot], 0f)
+        assertEquals(1f, geometry.greys[slot], 0f)
+        assertEquals(0f, geometry.rotations[slot], 0f)
+    }
+
+    @Test
+    fun layout_sideItemsShrinkTowardsTheCenter() {
+        val geometry = newGeometry(itemCount = 7, isLoop = false)
+        geometry.layout(300)
+        val left = geometry.slotOf(1)
+        val right = geometry.slotOf(3)
+        // 每隔一个 item 高度缩小 intervalHeightDistance
+        assertEquals(725f / 800, geometry.scales[left], 1e-6f)
+        assertEquals(geometry.scales[left], geometry.scales[right], 0f)
+        // 以中心缩放后向两边修正，使左右 Item 与中间 Item 对称叠加
+        assertEquals(90 - 28, geometry.lefts[left])
+        assertEquals(390 + 28, geometry.lefts[right])
+        assertEquals(37, geometry.tops[left])
+    }
+
+    @Test
+    fun layout_rotatesSideItemsInOppositeDirections() {
+        val geometry = newGeometry(itemCount = 7, isLoop = true)
+        geometry.setEffects(isFlat = false, isAlphaItem = false, isGreyItem = false, is3DItem = true)
+        geometry.layout(0)
+        val left = geometry.rotations[geometry.slotOf(-1)]
+        val right = geometry.rotations[geometry.slotOf(1)]
+        assertTrue(left > 0)
+        assertEquals(-left, right, 1e-6f)
+    }
+
+    @Test
+    fun layout_flatFlowKeepsFullScale() {
+        val geometry = newGeometry(itemCount = 7, isLoop = false)
+        geometry.setEffects(isFlat = true, isAlphaItem = false, isGreyItem = false, is3DItem = false)
+        geometry.layout(0)
+        for (slot in 0 until geometry.count) {
+            assertEquals(1f, geometry.scales[slot], 0f)
+            assertEquals(1f, geometry.alphas[slot], 0f)
+        }
+    }
+
+    @Test
+    fun layout_transformersReuseTheScaleComputedForPosition() {
+        val geometry = newGeometry(itemCount = 7, isLoop = false)
+        geometry.setEffects(isFlat = false, isAlphaItem = true, isGreyItem = false, is3DItem = false)
+        geometry.layout(300)
+        for (slot in 0 until geometry.count) {
+            val x = geometry.xs[slot]
+            assertEquals(geometry.computeScale(x), geometry.baseScales[slot], 0f)
+            assertEquals(geometry.baseScales[slot], geometry.scales[slot], 0f)
+            assertEquals(geometry.computeAlpha(x), geometry.alphas[slot], 0f)
+        }
+
+        // 平面滚动且只开启半透时，半透仍按位置的缩放系数计算
+        geometry.setEffects(isFlat = true, isAlphaItem = true, isGreyItem = false, is3DItem = false)
+        geometry.layout(300)
+        for (slot in 0 until geometry.count) {
+            assertEquals(1f, geometry.scales[slot], 0f)
+            assertEquals(geometry.computeAlpha(geometry.xs[slot]), geometry.alphas[slot], 0f)
+        }
+    }
+
+    @Test
+    fun intervalRatioMode_clampsScaleAndAlpha() {
+        val geometry = newGeometry(itemCount = 7, isLoop = false)
+        geometry.scaleMode = CoverFlowGeometry.SCALE_BY_INTERVAL_RATIO
+        geometry.intervalRatio = 0.5f
+        assertEquals(1f, geometry.computeScale(240), 0f)
+        assertEquals(0f, geometry.computeScale(240 + 10_000), 0f)
+        assertEquals(0.3f, geometry.computeAlpha(240 + 10_000), 0f)
+    }
+
+    @Test
+    fun fixedScrollPosition_snapsToNearestItem() {
+        val geometry = newGeometry(itemCount = 7, isLoop = true)
+        assertEquals(0, geometry.fixedScrollPosition(75))
+        assertEquals(1, geometry.fixedScrollPosition(76))
+        assertEquals(-1, geometry.fixedScrollPosition(-76))
+        assertEquals(450, geometry.calculateOffsetForPosition(3))
+    }
+
+    @Test
+    fun distanceToAttach_matchesAttachedRange() {
+        val geometry = newGeometry(itemCount = 7, isLoop = true)
+        geometry.updateAttachedRange(0)
+        val next = geometry.attachedMax + 1
+        val distance = geometry.distanceToAttach(next, 0)
+        assertTrue(distance > 0)
+        geometry.updateAttachedRange(distance - 1L)
+        assertTrue(!geometry.isAttached(next))
+        geometry.updateAttachedRange(distance.toLong())
+        assertTrue(geometry.isAttached(next))
+
+        val previous = -4
+        val back = geometry.distanceToAttach(previous, 0)
+        geometry.updateAttachedRange(-back.toLong())
+        assertTrue(geometry.isAttached(previous))
+        assertEquals(0, geometry.distanceToAttach(0, 0))
+    }
+
+    @Test
+    fun customTransformer_runsAfterBuiltInEffects() {
+        val geometry = newGeometry(itemCount = 7, isLoop = false)
+        geometry.setEffects(isFlat = false, isAlphaItem = true, isGreyItem = false, is3DItem = false)
+        val halfAlpha = object : ItemTransformer<CoverFlowGeometry> {
+            override val properties = ItemTransformer.PROPERTY_ALPHA
+
+            override fun transform(geometry: CoverFlowGeometry, slot: Int) {
+                geometry.alphas[slot] *= 0.5f
+            }
+        }
+        geometry.addTransformer(halfAlpha)
+        assertEquals(ItemTransformer.PROPERTY_SCALE or ItemTransformer.PROPERTY_ALPHA, geometry.properties)
+        geometry.layout(300)
+        assertEquals(0.5f, geometry.alphas[geometry.slotOf(2)], 0f)
+
+        geometry.removeTransformer(halfAlpha)
+        geometry.setEffects(isFlat = true, isAlphaItem = false, isGreyItem = false, is3DItem = false)
+        assertEquals(0, geometry.properties)
+    }
+
+    @Test
+    fun nearestPosition_takesTheShorterDirectionInLoopMode() {
+        val geometry = newGeometry(itemCount = 7, isLoop = true)
+        assertEquals(-1, geometry.nearestPosition(6, 0))
+        assertEquals(2, geometry.nearestPosition(2, 0))
+        assertEquals(15, geometry.nearestPosition(1, 13))
+        assertEquals(-8, geometry.nearestPosition(6, -6))
+
+        val notLoop = newGeometry(itemCount = 7, isLoop = false)
+        assertEquals(6, notLoop.nearestPosition(6, 0))
+    }
+
+    /**
+     * 模拟平滑滚动，返回需要绑定（新 attach）的 Item 个数
+     */
+    private fun smoothScrollBindCount(geometry: CoverFlowGeometry, from: Int, adapterTarget: Int): Int {
+        geometry.updateAttachedRange(geometry.calculateOffsetForPosition(from))
+        val target = geometry.nearestPosition(adapterTarget, from)
+        val start = geometry.smoothScrollStartPosition(from, target)
+        var lastMin = geometry.attachedMin
+        var lastMax = geometry.attachedMax
+        var binds = 0
+        val countNew = {
+            for (i in geometry.attachedMin..geometry.attachedMax) {
+                if (i < lastMin || i > lastMax) binds++
+            }
+            lastMin = geometry.attachedMin
+            lastMax = geometry.attachedMax
+        }
+        var offset = geometry.calculateOffsetForPosition(start)
+        geometry.updateAttachedRange(offset)
+        countNew()
+        val finalOffset = geometry.calculateOffsetForPosition(target)
+        val step = if (finalOffset > offset) 7 else -7
+        while (offset != finalOffset) {
+            offset = if (Math.abs(finalOffset - offset) < 7) finalOffset else offset + step
+            geometry.updateAttachedRange(offset)
+            countNew()
+        }
+        assertEquals(target, geometry.centerPosition(offset))
+        return binds
+    }
+
+    @Test
+    fun smoothScroll_farJumpBindsBoundedNumberOfItems() {
+        val bound = CoverFlowGeometry.MAX_ATTACHED_COUNT + CoverFlowGeometry.MAX_SMOOTH_SCROLL_ITEMS
+
+        val notLoop = newGeometry(itemCount = 10_001, isLoop = false)
+        assertTrue(smoothScrollBindCount(notLoop, 0, 10_000) <= bound)
+        assertTrue(smoothScrollBindCount(notLoop, 10_000, 0) <= bound)
+
+        val loop = newGeometry(itemCount = 30_000, isLoop = true)
+        assertTrue(smoothScrollBindCount(loop, 5, 10_005) <= bound)
+        // 向后跳过 10000 个 item 比向前更近
+        assertTrue(smoothScrollBindCount(loop, 0, 20_000) <= bound)
+        assertEquals(-10_000, loop.nearestPosition(20_000, 0))
+
+        // 近距离滚动不跳转
+        assertTrue(smoothScrollBindCount(loop, 0, 2) <= 2)
+    }
+
+    @Test
+    fun flingTargetPosition_crossesCardsByDistanceAndCapsAtMax() {
+        val geometry = newGeometry(itemCount = 20, isLoop = false)
+        // 很小的速度也至少越过一个 Item
+        assertEquals(3, geometry.flingTargetPosition(300, 10, 5))
+        assertEquals(1, geometry.flingTargetPosition(300, -10, 5))
+        // 滑到一半时，向左滑动到下一个，向右滑回来
+        assertEquals(3, geometry.flingTargetPosition(375, 1, 5))
+        assertEquals(2, geometry.flingTargetPosition(375, -1, 5))
+        // 按距离计算跨越的 Item 个数
+        assertEquals(5, geometry.flingTargetPosition(300, 450, 5))
+        // 最多越过 maxCards 个
+        assertEquals(7, geometry.flingTargetPosition(300, 100_000, 5))
+        // 非循环模式不越过首尾
+        assertEquals(0, geometry.flingTargetPosition(150, -100_000, 5))
+        assertEquals(19, geometry.flingTargetPosition(150 * 17, 100_000, 5))
+    }
+
+    @Test
+    fun flingTargetPosition_wrapsAroundInLoopMode() {
+        val geometry = newGeometry(itemCount = 7, isLoop = true)
+        assertEquals(-3, geometry.flingTargetPosition(0, -450, 5))
+        assertEquals(-2, geometry.flingTargetPosition(-150, -10, 5))
+        assertEquals(4, geometry.adapterPosition(geometry.flingTargetPosition(0, -450, 5)))
+        assertEquals(9, geometry.flingTargetPosition(150 * 6, 500, 5))
+    }
+
+    @Test
+    fun offsetAfterItemsAdded_keepsCenterItem() {
+        val geometry = newGeometry(itemCount = 10, isLoop = false)
+        // 中间为位置 4，滑过了 20 像素
+        val offset = geometry.offsetAfterItemsAdded(150 * 4 + 20, 2, 3)
+        assertEquals(150 * 7 + 20, offset)
+        assertEquals(13, geometry.itemCount)
+        // 在中间之后插入，不需要修正
+        assertEquals(150 * 7 + 20, geometry.offsetAfterItemsAdded(offset, 9, 1))
+    }
+
+    @Test
+    fun offsetAfterItemsRemoved_keepsCenterItemOrShowsNext() {
+        val geometry = newGeometry(itemCount = 10, isLoop = false)
+        assertEquals(150 * 2, geometry.offsetAfterItemsRemoved(150 * 4, 0, 2))
+        // 中间的 Item 被删除，显示原来它后面的 Item
+        assertEquals(150 * 1, geometry.offsetAfterItemsRemoved(150 * 2, 1, 2))
+        // 删除到最后，不超过最后一个 Item
+        assertEquals(0, geometry.offsetAfterItemsRemoved(150 * 1 + 40, 1, 5))
+        assertEquals(1, geometry.itemCount)
+    }
+
+    @Test
+    fun offsetAfterItemsChanged_keepsLapInLoopMode() {
+        val geometry = newGeometry(itemCount = 7, isLoop = true)
+        // 第 2 圈的位置 3，插入后同一圈的位置 5
+        val offset = geometry.offsetAfterItemsAdded(150 * (2 * 7 + 3), 0, 2)
+        assertEquals(150 * (2 * 9 + 5), offset)
+        assertEquals(5, geometry.adapterPosition(geometry.centerPosition(offset)))
+        // 负方向的圈
+        val negative = geometry.offsetAfterItemsRemoved(150 * (-9 + 6), 1, 3)
+        assertEquals(150 * (-6 + 3), negative)
+        assertEquals(3, geometry.adapterPosition(geometry.centerPosition(negative)))
+    }
+
+    @Test
+    fun offsetAfterItemMoved_followsCenterItem() {
+        val geometry = newGeometry(itemCount = 10, isLoop = false)
+        assertEquals(150 * 8, geometry.offsetAfterItemMoved(150 * 4, 4, 8))
+        assertEquals(150 * 3, geometry.offsetAfterItemMoved(150 * 4, 1, 6))
+        assertEquals(150 * 5, geometry.offsetAfterItemMoved(150 * 4, 7, 0))
+        assertEquals(150 * 4, geometry.offsetAfterItemMoved(150 * 4, 7, 9))
+    }
+
+    @Test
+    fun variableWidths_centerPositionInvertsOffset() {
+        for (isLoop in booleanArrayOf(false, true)) {
+            val geometry = newGeometry(itemCount = 20, isLoop = isLoop)
+            geometry.itemWidths = ItemWidthIndex()
+            geometry.set(240, 0, 600, 800, 1080, 150, 20, isLoop)
+            assertTrue(geometry.setItemWidth(5, 900))
+            assertEquals(600, geometry.itemWidthOf(4))
+            assertEquals(900, geometry.itemWidthOf(5))
+            // 5 号 Item 中心仍对齐到它的偏移量
+            val offset5 = geometry.calculateOffsetForPosition(5)
+            assertEquals(150 * 5 + 150, offset5)
+            assertEquals(240 + offset5 - 150, geometry.frameLeft(5))
+            assertEquals(geometry.frameLeft(5) + 900, geometry.frameRight(5))
+            for (position in 0 until 20) {
+                val offset = geometry.calculateOffsetForPosition(position)
+                assertEquals(position, geometry.centerPosition(offset))
+                assertEquals(position, geometry.fixedScrollPosition(offset + 10))
+            }
+        }
+    }
+
+    @Test
+    fun variableWidths_loopModeWrapsWithTotalLength() {
+        val geometry = newGeometry(itemCount = 7, isLoop = true)
+        geometry.itemWidths = ItemWidthIndex()
+        geometry.set(240, 0, 600, 800, 1080, 150, 7, true)
+        geometry.setItemWidth(0, 800)
+        val total = geometry.calculateOffsetForPosition(7)
+        assertEquals(150 * 7 + 200, total)
+        assertEquals(-total + geometry.calculateOffsetForPosition(3), geometry.calculateOffsetForPosition(-4))
+        assertEquals(-4, geometry.centerPosition(geometry.calculateOffsetForPosition(-4)))
+        assertEquals(800, geometry.itemWidthOf(-7))
+
+        // 每一帧仍然只 attach 有限个 Item
+        for (offset in -3000L..3000L step 37) {
+            geometry.layout(offset)
+            assertTrue(geometry.count <= CoverFlowGeometry.MAX_ATTACHED_COUNT)
+            assertTrue(geometry.isAttached(geometry.centerPosition(offset)))
+        }
+    }
+
+    @Test
+    fun variableWidths_itemInsertKeepsCenterItem() {
+        val geometry = newGeometry(itemCount = 10, isLoop = false)
+        geometry.itemWidths = ItemWidthIndex()
+        geometry.set(240, 0, 600, 800, 1080, 150, 10, false)
+        geometry.setItemWidth(4, 800)
+        val offset = geometry.calculateOffsetForPosition(4) + 20
+        val newOffset = geometry.offsetAfterItemsAdded(offset, 0, 2)
+        assertEquals(geometry.calculateOffsetForPosition(6) + 20, newOffset)
+        assertEquals(800, geometry.itemWidthOf(6))
+    }
+
+    @Test
+    fun hugeItemCount_offsetAndPositionRoundTripExactly() {
+        val itemCount = 10_000_000
+        val geometry = newGeometry(itemCount = itemCount, isLoop = false)
+        geometry.intervalDistance = 601
+        var position = 0
+        while (position < itemCount) {
+            val offset = geometry.calculateOffsetForPosition(position)
+            assertEquals(601L * position, offset)
+            assertEquals(position, geometry.centerPosition(offset))
+            assertEquals(position, geometry.fixedScrollPosition(offset + 300))
+            position += 9_973
+        }
+
+        // 最后一个 Item 的偏移量已经超过 Int 的范围，布局仍然只 attach 有限个 Item
+        val last = geometry.calculateOffsetForPosition(itemCount - 1)
+        assertTrue(last > Int.MAX_VALUE)
+        geometry.layout(last)
+        assertTrue(geometry.count <= CoverFlowGeometry.MAX_ATTACHED_COUNT)
+        assertEquals(itemCount - 1, geometry.attachedMax)
+        for (slot in 0 until geometry.count) {
+            if (geometry.positions[slot] == itemCount - 1) assertEquals(240, geometry.lefts[slot])
+        }
+    }
+
+    @Test
+    fun hugeItemCount_scrollClampIsExactAtTheEnd() {
+        val geometry = newGeometry(itemCount = 10_000_000, isLoop = false)
+        val max = geometry.calculateOffsetForPosition(10_000_000 - 1)
+        assertEquals(1_499_999_850L, max)
+        // Float 在这个范围内的精度为 128，必须精确停在最后一个 Item
+        assertEquals(100, CoverFlowGeometry.clampScroll(max - 100, 200, max))
+        assertEquals(0, CoverFlowGeometry.clampScroll(max, 20, max))
+        assertEquals(-20, CoverFlowGeometry.clampScroll(max, -20, max))
+        assertEquals(1, CoverFlowGeometry.clampScroll(max - 1, 1, max))
+        assertEquals(-30, CoverFlowGeometry.clampScroll(30, -200, max))
+    }
+
+    @Test
+    fun loopAutoplay_renormalizationIsInvisible() {
+        val geometry = newGeometry(itemCount = 7, isLoop = true)
+        val reference = newGeometry(itemCount = 7, isLoop = true)
+        // 自动轮播数十亿像素，reference 使用不归一化的偏移量
+        var rawOffset = 0L
+        var offset = 0L
+        var renormalized = 0
+        geometry.layout(offset)
+        while (rawOffset < 5_000_000_000L) {
+            val step = 150L * 100_003 + 37
+            rawOffset += step
+            offset += step
+            geometry.layout(offset)
+            val laps = geometry.renormalizeLaps(offset)
+            if (laps != 0) {
+                renormalized++
+                offset -= laps * geometry.cycleLength
+                geometry.shiftPositions(-laps * 7)
+                // 平移后的可见范围与新的偏移量一致，不需要重新 attach
+                assertTrue(!geometry.layout(offset))
+            }
+            assertTrue(Math.abs(offset) < CoverFlowGeometry.RENORMALIZE_THRESHOLD + geometry.cycleLength)
+
+            reference.layout(rawOffset)
+            assertEquals(reference.count, geometry.count)
+            for (slot in 0 until geometry.count) {
+                assertEquals(reference.adapterPositions[slot], geometry.adapterPositions[slot])
+                assertEquals(reference.lefts[slot], geometry.lefts[slot])
+            }
+            assertEquals(
+                reference.adapterPosition(reference.centerPosition(rawOffset)),
+                geometry.adapterPosition(geometry.centerPosition(offset))
+            )
+        }
+        assertTrue(rawOffset > Int.MAX_VALUE)
+        assertTrue(renormalized > 0)
+    }
+}
@@ -0,0 +1,89 @@
+package recycler.coverflow.geometry
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Random
+
+class ItemWidthIndexTest {
+
+    /**
+     * 直接累加计算的偏移量，用于校验
+     */
+    private fun bruteOffset(widths: IntArray, defaultWidth: Int, interval: Int, position: Int): Long {
+        var sum = 0L
+        for (i in 0 until position) {
+            val next = if (i + 1 == widths.size) 0 else i + 1
+            val spacing = interval + (widths[i] - defaultWidth + widths[next] - defaultWidth) / 2
+            sum += if (spacing < 1) 1 else spacing
+        }
+        return sum
+    }
+
+    @Test
+    fun unmeasuredItems_useDefaultInterval() {
+        val index = ItemWidthIndex()
+        index.setup(10, 600, 150)
+        assertEquals(0L, index.offsetOf(0))
+        assertEquals(150L * 4, index.offsetOf(4))
+        assertEquals(150L * 10, index.total)
+        assertEquals(4, index.positionAt(150L * 4 + 149))
+        assertEquals(600, index.width(3))
+    }
+
+    @Test
+    fun setWidth_shiftsFollowingItemsOnly() {
+        val index = ItemWidthIndex()
+        index.setup(10, 600, 150)
+        assertTrue(index.setWidth(3, 800))
+        assertFalse(index.setWidth(3, 800))
+        // 3 号 Item 比默认宽 200，与前后 Item 的间隔各增加 100
+        assertEquals(150L * 2, index.offsetOf(2))
+        assertEquals(150L * 3 + 100, index.offsetOf(3))
+        assertEquals(150L * 4 + 200, index.offsetOf(4))
+        assertEquals(150L * 9 + 200, index.offsetOf(9))
+        assertEquals(2, index.positionAt(150L * 3 + 99))
+        assertEquals(3, index.positionAt(150L * 3 + 100))
+    }
+
+    @Test
+    fun randomWidths_matchBruteForceFor100kItems() {
+        val size = 100_000
+        val index = ItemWidthIndex()
+        index.setup(size, 600, 150)
+        val widths = IntArray(size) { 600 }
+        val random = Random(7)
+        for (i in 0 until 5_000) {
+            val position = random.nextInt(size)
+            val width = 300 + random.nextInt(600)
+            widths[position] = width
+            index.setWidth(position, width)
+        }
+        for (i in 0 until 200) {
+            val position = random.nextInt(size)
+            val offset = bruteOffset(widths, 600, 150, position)
+            assertEquals(offset, index.offsetOf(position))
+            assertEquals(position, index.positionAt(offset))
+            assertEquals(position, index.positionAt(offset + index.offsetOf(position + 1) - offset - 1))
+        }
+        assertEquals(bruteOffset(widths, 600, 150, size), index.total)
+    }
+
+    @Test
+    fun insertRemoveMove_keepMeasuredWidths() {
+        val index = ItemWidthIndex()
+        index.setup(5, 600, 150)
+        index.setWidth(2, 800)
+        index.insert(0, 2)
+        assertEquals(7, index.size)
+        assertEquals(800, index.width(4))
+        assertEquals(600, index.width(0))
+        index.remove(1, 2)
+        assertEquals(800, index.width(2))
+        index.move(2, 4)
+        assertEquals(800, index.width(4))
+        assertEquals(600, index.width(2))
+        assertEquals(150L * 4 + 100, index.offsetOf(4))
+    }
+}
@@ -0,0 +1,72 @@
+package recycler.coverflow.geometry
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class OcclusionCullingTest {
+
+    @Test
+    fun coverFlowOrder_clipsSideCardsAndCullsHiddenOnes() {
+        // 绘制顺序：左边最远、右边最远、左边、右边、中间，间隔 150，中间的 Item 最大
+        val culling = OcclusionCulling()
+        culling.reset(5)
+        culling.setItem(0, 90f, 510f, 120f, 680f, true)
+        culling.setItem(1, 570f, 990f, 120f, 680f, true)
+        culling.setItem(2, 180.5f, 659.5f, 80f, 720f, true)
+        culling.setItem(3, 420.5f, 899.5f, 80f, 720f, true)
+        culling.setItem(4, 240f, 840f, 0f, 800f, true)
+        culling.compute()
+
+        assertEquals(90, culling.visibleStart(0))
+        assertEquals(181, culling.visibleEnd(0))
+        assertTrue(culling.isClipped(0))
+        assertEquals(899, culling.visibleStart(1))
+        assertEquals(990, culling.visibleEnd(1))
+        assertEquals(180, culling.visibleStart(2))
+        assertEquals(240, culling.visibleEnd(2))
+        assertFalse(culling.isClipped(4))
+        assertFalse(culling.isCulled(4))
+    }
+
+    @Test
+    fun coveredOnBothSides_isCulled() {
+        val culling = OcclusionCulling()
+        culling.reset(3)
+        culling.setItem(0, 100f, 300f, 0f, 100f, true)
+        culling.setItem(1, 250f, 400f, 0f, 100f, true)
+        culling.setItem(2, 50f, 260f, 0f, 100f, true)
+        culling.compute()
+        assertTrue(culling.isCulled(0))
+        assertFalse(culling.isCulled(1))
+    }
+
+    @Test
+    fun translucentOrShorterOccluders_doNotClip() {
+        val culling = OcclusionCulling()
+        culling.reset(3)
+        culling.setItem(0, 0f, 200f, 0f, 100f, true)
+        culling.setItem(1, 100f, 300f, 0f, 100f, false)
+        culling.setItem(2, 150f, 300f, 10f, 100f, true)
+        culling.compute()
+        assertFalse(culling.isClipped(0))
+        assertEquals(200, culling.visibleEnd(0))
+    }
+
+    @Test
+    fun occluderInTheMiddle_isIgnored() {
+        val culling = OcclusionCulling()
+        culling.reset(2)
+        culling.setItem(0, 0f, 300f, 0f, 100f, true)
+        culling.setItem(1, 100f, 200f, 0f, 100f, true)
+        culling.compute()
+        assertFalse(culling.isClipped(0))
+
+        // 个数减少时复用数组
+        culling.reset(1)
+        culling.compute()
+        assertEquals(1, culling.count)
+        assertEquals(300, culling.visibleEnd(0))
+    }
+}
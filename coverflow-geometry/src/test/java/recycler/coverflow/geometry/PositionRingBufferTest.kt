@@ -0,0 +1,68 @@
+package recycler.coverflow.geometry
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class PositionRingBufferTest {
+
+    @Test
+    fun putAndRemove_negativeAndLargePositions() {
+        val buffer = PositionRingBuffer()
+        buffer.put(-3)
+        buffer.put(1_000_003)
+        assertTrue(buffer.isAttached(-3))
+        assertTrue(buffer.isAttached(1_000_003))
+        assertEquals(2, buffer.size)
+
+        buffer.remove(-3)
+        assertFalse(buffer.isAttached(-3))
+        assertEquals(1, buffer.size)
+    }
+
+    @Test
+    fun slidingWindow_keepsConstantSize() {
+        val geometry = CoverFlowGeometry()
+        geometry.set(240, 0, 600, 800, 1080, 150, 7, true)
+        val buffer = PositionRingBuffer()
+        // 模拟长时间循环滚动，窗口外的位置都被移除
+        var offset = -1_000_000L
+        while (offset < 1_000_000) {
+            geometry.updateAttachedRange(offset)
+            for (i in geometry.attachedMin - 2 until geometry.attachedMin) buffer.remove(i)
+            for (i in geometry.attachedMax + 1..geometry.attachedMax + 2) buffer.remove(i)
+            for (i in geometry.attachedMin..geometry.attachedMax) {
+                if (!buffer.isAttached(i)) buffer.put(i)
+            }
+            assertEquals(geometry.attachedMax - geometry.attachedMin + 1, buffer.size)
+            offset += 37
+        }
+        assertTrue(buffer.isAttached(geometry.attachedMin))
+    }
+
+    @Test
+    fun stalePositionInSameSlotIsNotAttached() {
+        val buffer = PositionRingBuffer(capacity = 16)
+        buffer.put(5)
+        assertFalse(buffer.isAttached(21))
+        buffer.put(21)
+        assertFalse(buffer.isAttached(5))
+        assertEquals(1, buffer.size)
+    }
+
+    @Test
+    fun shift_movesEveryPosition() {
+        val buffer = PositionRingBuffer()
+        for (i in -3..3) buffer.put(1_000_000 + i)
+        buffer.shift(-1_000_000)
+        assertEquals(7, buffer.size)
+        for (i in -3..3) assertTrue(buffer.isAttached(i))
+        assertFalse(buffer.isAttached(1_000_000))
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun capacityMustBePowerOfTwo() {
+        PositionRingBuffer(capacity = 12)
+    }
+}
@@ -0,0 +1,105 @@
+package recycler.stacklayout.geometry
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import recycler.coverflow.geometry.ItemTransformer
+
+class StackGeometryTest {
+
+    private fun newGeometry(maxCount: Int): StackGeometry {
+        val geometry = StackGeometry()
+        geometry.setMaxCount(maxCount)
+        geometry.itemSpace = 24
+        geometry.itemWidth = 900
+        geometry.itemCount = 20
+        geometry.isLoop = true
+        return geometry
+    }
+
+    @Test
+    fun defaultCurve_keepsThreeLevelValues() {
+        val geometry = newGeometry(maxCount = 3)
+        geometry.layout(0, 0)
+        assertEquals(4, geometry.count)
+        assertEquals(0.8957f, geometry.scales[1], 1e-6f)
+        assertEquals(0.776f, geometry.scales[2], 1e-6f)
+        assertEquals(0.625f, geometry.scales[3], 1e-6f)
+        assertEquals(0.05f, geometry.alphas[3], 1e-6f)
+
+        // 最顶部滑动一半时，后面的 Item 在相邻两级之间插值
+        geometry.layout(0, 450)
+        assertEquals(0.8957f + (1f - 0.8957f) * 0.5f, geometry.scales[1], 1e-6f)
+        assertEquals(0.625f + (0.776f - 0.625f) * 0.5f, geometry.scales[3], 1e-6f)
+        assertEquals(2 * 24 + 12, geometry.lefts[3])
+    }
+
+    @Test
+    fun deepStack_interpolatesKeyframesForEveryLevel() {
+        val geometry = newGeometry(maxCount = 10)
+        geometry.layout(5, 0)
+        assertEquals(11, geometry.count)
+        assertEquals(0.8957f, geometry.scales[1], 1e-6f)
+        assertEquals(0.625f, geometry.scales[10], 1e-6f)
+        for (i in 1..10) {
+            assertTrue(geometry.scales[i] < geometry.scales[i - 1])
+            assertTrue(geometry.alphas[i] < geometry.alphas[i - 1])
+        }
+    }
+
+    @Test
+    fun customCurve_isBakedForMaxCount() {
+        val geometry = newGeometry(maxCount = 8)
+        geometry.depthCurve = object : StackDepthCurve {
+            override fun scale(depth: Int, maxCount: Int): Float = 1f - depth * 0.05f
+
+            override fun alpha(depth: Int, maxCount: Int): Float = 1f - depth.toFloat() / maxCount
+        }
+        geometry.layout(0, 0)
+        assertEquals(0.6f, geometry.scales[8], 1e-6f)
+        assertEquals(0f, geometry.alphas[8], 1e-6f)
+
+        // 个数变化时按新的个数重新计算
+        geometry.setMaxCount(4)
+        geometry.layout(0, 0)
+        assertEquals(5, geometry.count)
+        assertEquals(0f, geometry.alphas[4], 1e-6f)
+    }
+
+    @Test
+    fun notLooping_stopsAtLastItem() {
+        val geometry = newGeometry(maxCount = 10)
+        geometry.isLoop = false
+        geometry.layout(16, 0)
+        assertEquals(4, geometry.count)
+    }
+
+    @Test
+    fun customTransformer_runsAfterDepthCurve() {
+        val geometry = newGeometry(maxCount = 3)
+        assertEquals(ItemTransformer.PROPERTY_SCALE or ItemTransformer.PROPERTY_ALPHA, geometry.properties)
+        val tilt = object : ItemTransformer<StackGeometry> {
+            override val properties = ItemTransformer.PROPERTY_ROTATION_Y
+
+            override fun transform(geometry: StackGeometry, slot: Int) {
+                geometry.rotations[slot] = slot * 10f
+                geometry.alphas[slot] *= 0.5f
+            }
+        }
+        geometry.addTransformer(tilt)
+        assertEquals(
+            ItemTransformer.PROPERTY_SCALE or ItemTransformer.PROPERTY_ALPHA or ItemTransformer.PROPERTY_ROTATION_Y,
+            geometry.properties
+        )
+        geometry.layout(0, 0)
+        assertEquals(1f, geometry.scales[0], 0f)
+        assertEquals(0.5f, geometry.alphas[0], 0f)
+        assertEquals(30f, geometry.rotations[3], 0f)
+        assertEquals(0.025f, geometry.alphas[3], 1e-6f)
+
+        geometry.removeTransformer(tilt)
+        geometry.layout(0, 0)
+        assertEquals(1f, geometry.alphas[0], 0f)
+        assertEquals(0f, geometry.rotations[3], 0f)
+    }
+}
@@ -0,0 +1,94 @@
+package recycler.coverflow
+
+import android.view.View
+import android.view.ViewGroup
+import androidx.recyclerview.widget.RecyclerView
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import recycler.coverflow.geometry.CoverFlowGeometry
+
+/**
+ * 远距离平滑滚动时绑定的 Item 个数，见 [CoverFlowLayoutManger3.smoothScrollToPosition]
+ */
+@RunWith(AndroidJUnit4::class)
+class SmoothScrollBindTest {
+
+    @Test
+    fun farSmoothScroll_bindsOnlyItemsNearTarget() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val context = InstrumentationRegistry.getInstrumentation().targetContext
+            val adapter = BindCountingAdapter(ITEM_COUNT)
+            val layoutManager = CoverFlowLayoutManger3(false, false, false, -1f, false, false)
+            val recyclerView = RecyclerView(context)
+            recyclerView.layoutManager = layoutManager
+            recyclerView.adapter = adapter
+            layout(recyclerView)
+            assertEquals(0, layoutManager.centerPosition)
+
+            adapter.reset()
+            recyclerView.smoothScrollToPosition(TARGET)
+            // 没有 attach 到窗口，不会有动画帧；停止滚动后按帧的步长滚动到目标，与 SmoothScroller 驱动的效果相同
+            recyclerView.stopScroll()
+            var frames = 0
+            while (layoutManager.centerPosition < TARGET && frames++ < MAX_FRAMES) {
+                recyclerView.scrollBy(FRAME_STEP, 0)
+            }
+
+            assertEquals(TARGET, layoutManager.centerPosition)
+            assertTrue(adapter.boundPositions.contains(TARGET))
+            // 先跳到目标前 MAX_SMOOTH_SCROLL_ITEMS 个 Item，只绑定跳转后 attach 的 Item 及之后经过的 Item，
+            // 不绑定 0 到目标之间的所有 Item
+            val maxBinds = CoverFlowGeometry.MAX_ATTACHED_COUNT + CoverFlowGeometry.MAX_SMOOTH_SCROLL_ITEMS
+            assertTrue("bindCount: ${adapter.bindCount}", adapter.bindCount <= maxBinds)
+            for (position in adapter.boundPositions) {
+                assertTrue("position: $position", position >= TARGET - maxBinds)
+            }
+        }
+    }
+
+    private fun layout(recyclerView: RecyclerView) {
+        recyclerView.measure(
+            View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+            View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY)
+        )
+        recyclerView.layout(0, 0, WIDTH, HEIGHT)
+    }
+
+    private class BindCountingAdapter(private val count: Int) : RecyclerView.Adapter<RecyclerView.ViewHolder>() {
+        var bindCount = 0
+        val boundPositions = HashSet<Int>()
+
+        fun reset() {
+            bindCount = 0
+            boundPositions.clear()
+        }
+
+        override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): RecyclerView.ViewHolder {
+            val view = View(parent.context)
+            view.layoutParams = RecyclerView.LayoutParams(ITEM_WIDTH, ITEM_HEIGHT)
+            return object : RecyclerView.ViewHolder(view) {}
+        }
+
+        override fun onBindViewHolder(holder: RecyclerView.ViewHolder, position: Int) {
+            bindCount++
+            boundPositions.add(position)
+        }
+
+        override fun getItemCount(): Int = count
+    }
+
+    private companion object {
+        const val ITEM_COUNT = 100
+        const val TARGET = 80
+        const val WIDTH = 1080
+        const val HEIGHT = 600
+        const val ITEM_WIDTH = 400
+        const val ITEM_HEIGHT = 500
+        const val FRAME_STEP = 20
+        const val MAX_FRAMES = 1000
+    }
+}
@@ -0,0 +1,36 @@
+package recycler.coverflow
+
+import android.view.View
+
+/**
+ * 远处 Item 的绘制缓存
+ *
+ * 离中间（层叠时离最顶部）较远的 Item 缩放较小且大部分被遮挡，但每一帧仍然要绘制整个 View 树。
+ * 开启后为这些 Item 设置 hardware layer：View 树只在绑定后第一次绘制、以及内容变化（invalidate）时
+ * 绘制到 layer 中，之后每一帧只绘制这张缓存，缩放、半透、旋转等属性变化不会让 layer 重绘；
+ * Item 靠近中间时移除 layer，恢复直接绘制
+ *
+ * 不开启硬件加速时 layer 退化为软件绘制的 Bitmap 缓存，效果相同
+ */
+internal object CardLayerCache {
+    /**不缓存 */
+    const val DISABLED = 0
+
+    /**
+     * 根据 Item 的深度设置或移除缓存
+     * @param child 需要设置的 Item
+     * @param depth Item 的深度，中间（最顶部）为 0
+     * @param cacheDepth 深度达到该值时使用缓存，[DISABLED] 为不缓存
+     * @param hasOtherLayer Item 是否已经因为其他效果（如灰度）设置了 layer，此时不再修改 layer 类型
+     * @return Item 的深度是否达到了使用缓存的深度
+     */
+    fun apply(child: View, depth: Int, cacheDepth: Int, hasOtherLayer: Boolean): Boolean {
+        val cached = cacheDepth != DISABLED && depth >= cacheDepth
+        if (hasOtherLayer) return cached
+        val layerType = if (cached) View.LAYER_TYPE_HARDWARE else View.LAYER_TYPE_NONE
+        if (child.layerType != layerType) {
+            child.setLayerType(layerType, null)
+        }
+        return cached
+    }
+}
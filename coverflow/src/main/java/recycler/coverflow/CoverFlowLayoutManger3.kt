@@ -1,16 +1,16 @@
 package recycler.coverflow
 
-import android.animation.Animator
-import android.animation.ValueAnimator
-import android.graphics.*
+import android.graphics.Rect
+import android.os.Parcel
+import android.os.Parcelable
 import android.util.Log
-import android.util.SparseArray
-import android.util.SparseBooleanArray
-import android.util.SparseIntArray
 import android.view.View
 import android.view.ViewGroup
-import android.view.animation.DecelerateInterpolator
 import androidx.recyclerview.widget.RecyclerView
+import recycler.coverflow.geometry.CoverFlowGeometry
+import recycler.coverflow.geometry.ItemTransformer
+import recycler.coverflow.geometry.ItemWidthIndex
+import recycler.coverflow.geometry.PositionRingBuffer
 import recycler.stacklayout.StackSnapHelper
 import java.util.*
 import kotlin.math.abs
@@ -21,13 +21,13 @@ class CoverFlowLayoutManger3(
     isAlphaItem: Boolean, cstInterval: Float,
     isLoop: Boolean, is3DItem: Boolean
 ) : RecyclerView.LayoutManager() {
-    /**滑动总偏移量 */
-     var mOffsetAll = 0
+    /**滑动总偏移量，循环模式下会定期减去整数圈，见 [renormalizeOffset] */
+     var mOffsetAll = 0L
 
-    /**Item宽 */
+    /**Item宽，纵向时为Item高，即滚动方向上的长度 */
     private var mDecoratedChildWidth = 0
 
-    /**Item高 */
+    /**Item高，纵向时为Item宽 */
     private var mDecoratedChildHeight = 0
 
     /**Item间隔与item宽的比例 */
@@ -48,13 +48,21 @@ class CoverFlowLayoutManger3(
     /**起始Item Y坐标 */
     private var mStartY = 0
 
-    /**保存所有的Item的上下左右的偏移量信息 */
-    private val mAllItemFrames = SparseArray<Rect>()
+    /**Item位置、可见范围的计算，滚动过程中不分配对象 */
+    private val mGeometry = CoverFlowGeometry()
 
-    /**记录Item是否出现过屏幕且还没有回收。true表示出现过屏幕上，并且还没被回收 */
-    private val mHasAttachedItems = SparseBooleanArray()
+    /**每个 child 的绘制顺序，见 [updateDrawingOrder] */
+    private var mDrawingOrder = IntArray(CoverFlowGeometry.MAX_ATTACHED_COUNT)
 
-    val mActualPosition2AdapterPosition = SparseIntArray()
+    /**计算 [mDrawingOrder] 时 child 的个数，-1 表示还没有计算 */
+    private var mDrawingOrderCount = -1
+
+    /**
+     * 记录出现过屏幕且还没有回收的Item的位置
+     *
+     * 循环模式下位置无限增长，使用固定容量的环形数组，内存不随滚动距离增长
+     */
+    val attachedPositions = PositionRingBuffer()
 
     /**RecyclerView的Item回收器 */
     private var mRecycle: RecyclerView.Recycler? = null
@@ -62,8 +70,9 @@ class CoverFlowLayoutManger3(
     /**RecyclerView的状态器 */
     private var mState: RecyclerView.State? = null
 
-    /**滚动动画 */
-    private var mAnimation: ValueAnimator? = null
+    /**等待第一次布局时恢复的状态 */
+    private var mPendingSavedState: SavedState? = null
+
     /**
      * 获取被选中Item位置
      */
@@ -92,8 +101,97 @@ class CoverFlowLayoutManger3(
     /**是否启动Item 3D 倾斜 */
     private var mItem3D = false
 
+    /**本次布局时显示在中间的Item，用于计算 Item 的深度 */
+    private var mLayoutCenterPosition = 0
+
+    /**本次布局中是否有新测量出的 Item 宽度发生了变化 */
+    private var mItemWidthChanged = false
+
+    /**
+     * 是否支持宽度不同的 Item
+     *
+     * 开启后每个 Item 的宽度由 Item 自身的 LayoutParams 测量得到，位置与偏移量的换算使用树状数组，
+     * 都是 O(log n)。只有布局到可见范围附近的 Item 才会测量，没有测量过的 Item 按默认宽度计算
+     */
+    var isVariableItemWidth: Boolean
+        get() = mGeometry.itemWidths != null
+        set(value) {
+            if (value == isVariableItemWidth) return
+            mGeometry.itemWidths = if (value) ItemWidthIndex() else null
+            requestLayout()
+        }
+
+    /**
+     * 滚动方向，[RecyclerView.HORIZONTAL] 或 [RecyclerView.VERTICAL]
+     *
+     * 纵向时沿 Y 轴滚动，回收、预取以及 Item 效果都与横向相同，只是应用到 View 上时交换 X、Y 轴：
+     * [mGeometry] 计算出的 x、宽度对应纵向的 y、高度，3D 倾斜使用 rotationX
+     */
+    var orientation = RecyclerView.HORIZONTAL
+        set(value) {
+            if (value != RecyclerView.HORIZONTAL && value != RecyclerView.VERTICAL) {
+                throw IllegalArgumentException("invalid orientation: $value")
+            }
+            if (value == field) return
+            field = value
+            requestLayout()
+        }
+
+    internal val isVertical: Boolean
+        get() = orientation == RecyclerView.VERTICAL
+
+    /**
+     * 离中间的Item距离达到该值的 Item 从绘制缓存绘制，[CardLayerCache.DISABLED] 为不缓存，见 [CardLayerCache]
+     *
+     * 适合 View 层级复杂的 Item，缓存只在 Item 重新绑定或内容变化时重绘；开启灰度渐变时灰度本身已使用 layer
+     *
+     * 使用 [RecyclerCoverFlow] 时，缓存与直接绘制的 Item 的平均耗时见 [CoverFlowStats.cachedItemDrawTimeNanos]、
+     * [CoverFlowStats.uncachedItemDrawTimeNanos]
+     */
+    var cacheDepth = CardLayerCache.DISABLED
+        set(value) {
+            require(value >= 0) { "invalid cache depth: $value" }
+            if (value == field) return
+            field = value
+            if (value == CardLayerCache.DISABLED) {
+                for (i in 0 until childCount) {
+                    val child = getChildAt(i) ?: continue
+                    CardLayerCache.apply(child, 0, value, mViewApplier.hasGreyLayer(child))
+                }
+            }
+            requestLayout()
+        }
+
     var recyclerView: RecyclerView? = null
 
+    private var enableLog = false
+
+    fun setEnableLog(enableLog: Boolean) {
+        this.enableLog = enableLog
+    }
+
+    /**布局、绑定、绘制顺序等阶段的跟踪，默认不做任何事 */
+    var tracer: CoverFlowTracer = CoverFlowTracer.NONE
+
+    /**运行时的统计数据 */
+    private val mStats = CoverFlowStats()
+
+    /**将 [mGeometry] 的计算结果应用到 View 上，与 [recycler.stacklayout.StackLayoutManager] 共用 */
+    private val mViewApplier = ItemViewApplier(mStats)
+
+    /**
+     * 获取统计数据的快照
+     */
+    val stats: CoverFlowStats
+        get() = mStats.snapshot()
+
+    /**
+     * 重置统计数据
+     */
+    fun resetStats() {
+        mStats.reset()
+    }
+
     override fun generateDefaultLayoutParams(): RecyclerView.LayoutParams {
         return RecyclerView.LayoutParams(
             ViewGroup.LayoutParams.WRAP_CONTENT,
@@ -102,50 +200,58 @@ class CoverFlowLayoutManger3(
     }
 
     private fun getItemWidth(): Int {
-        return horizontalSpace - (MAX_COUNT - 1) * intervalDistance
+        return mainSpace - (MAX_COUNT - 1) * intervalDistance
     }
 
     private fun getItemHeight(): Int {
-        return verticalSpace
+        return crossSpace
     }
 
     override fun onLayoutChildren(recycler: RecyclerView.Recycler, state: RecyclerView.State) {
         //如果没有item，直接返回
-        //跳过preLayout，preLayout主要用于支持动画
         val itemCount = state.itemCount
         if (itemCount <= 0) {
+            mStats.viewsRecycled += childCount
             removeAndRecycleAllViews(recycler)
             return
         }
-        if (state.isPreLayout) {
+        if (state.isPreLayout) { //预布局，用于支持动画
+            preLayoutItems(recycler, state)
             return
         }
 
-        mAllItemFrames.clear()
-        mHasAttachedItems.clear()
-        mActualPosition2AdapterPosition.clear()
+        mStats.layoutPasses++
+        mGeometry.resetAttachedRange()
         //计算测量布局的宽高
         mDecoratedChildWidth = getItemWidth()
         mDecoratedChildHeight = getItemHeight()
 
         if(mDecoratedChildWidth <= 0) {
+            attachedPositions.clear()
             return
         }
 
     //    mStartX = (MAX_COUNT / 2) * intervalDistance  //最中间那个为起始item
-        mStartX = ((horizontalSpace - mDecoratedChildWidth) * 1.0f / 2).roundToInt()
+        mStartX = ((mainSpace - mDecoratedChildWidth) * 1.0f / 2).roundToInt()
         mStartY = 0
 
-        Log.i(TAG, " onLayoutChildren, itemWidth: $mDecoratedChildWidth, startX: $mStartX  rect: ")
-        detachAndScrapAttachedViews(recycler)
-        //首次时才需要回调
-        if ((mRecycle == null || mState == null)) {  //在为初始化前调用smoothScrollToPosition 或者 scrollToPosition,只会记录位置
+        if (enableLog) {
+            Log.i(TAG, " onLayoutChildren, itemWidth: $mDecoratedChildWidth, startX: $mStartX")
+        }
+        val pendingSavedState = mPendingSavedState
+        if (pendingSavedState != null) { //恢复保存的状态，直接在保存的位置布局，不需要先布局位置 0
+            mPendingSavedState = null
+            mOffsetAll = restoredOffset(pendingSavedState, itemCount)
+            selectedPos = mGeometry.centerPosition(mOffsetAll)
+        } else if ((mRecycle == null || mState == null)) { //首次时才需要回调  //在为初始化前调用smoothScrollToPosition 或者 scrollToPosition,只会记录位置
             mOffsetAll = calculateOffsetForPosition(selectedPos)          //所以初始化时需要滚动到对应位置
         }
 //        mOffsetAll = 0
 //        mLastSelectPosition = 0
 //        selectedPos = 0
-        layoutItems(recycler, state, SCROLL_TO_LEFT)
+        syncAttachedChildren(recycler, state)
+        layoutItems(recycler, state, SCROLL_TO_LEFT, true)
+        layoutDisappearingViews(recycler, state)
         mRecycle = recycler
         mState = state
     }
@@ -154,64 +260,137 @@ class CoverFlowLayoutManger3(
         dx: Int, recycler: RecyclerView.Recycler,
         state: RecyclerView.State
     ): Int {
-        // 手指从右向左滑动，dx > 0; 手指从左向右滑动，dx < 0;
-        if (mAnimation?.isRunning == true) mAnimation?.cancel()
+        return scrollBy(dx, recycler, state)
+    }
+
+    override fun scrollVerticallyBy(
+        dy: Int, recycler: RecyclerView.Recycler,
+        state: RecyclerView.State
+    ): Int {
+        return scrollBy(dy, recycler, state)
+    }
+
+    /**
+     * 沿滚动方向滑动
+     * @param dx 横向时手指从右向左滑动，dx > 0; 手指从左向右滑动，dx < 0; 纵向时手指从下向上滑动，dx > 0
+     */
+    private fun scrollBy(
+        dx: Int, recycler: RecyclerView.Recycler,
+        state: RecyclerView.State
+    ): Int {
+        if (mSettling) mStats.animatorFrames++
         var travel = dx
         if (!mIsLoop) { //非循环模式，限制滚动位置
-            if (dx + mOffsetAll < 0) {
-                travel = -mOffsetAll
-            } else if (dx + mOffsetAll > maxOffset) {
-                travel = (maxOffset - mOffsetAll).toInt()
-            }
+            travel = CoverFlowGeometry.clampScroll(mOffsetAll, dx, maxOffset)
+        }
+        if (enableLog) {
+            Log.i(TAG, " scrollHorizontallyBy dx: $dx, offsetAll: $mOffsetAll ")
         }
-        Log.i(TAG, " scrollHorizontallyBy dx: $dx, offsetAll: $mOffsetAll ")
 
         mOffsetAll += travel //累计偏移量
-        layoutItems(recycler, state, if (dx > 0) SCROLL_TO_LEFT else SCROLL_TO_RIGHT)
+        if (mIsLoop && !mSettling) renormalizeOffset()
+        layoutItems(recycler, state, if (dx > 0) SCROLL_TO_LEFT else SCROLL_TO_RIGHT, false)
         return travel
     }
 
-    private fun layoutItems2(recycler: RecyclerView.Recycler?, state: RecyclerView.State?, scrollDirection: Int) {
-
-        if (state == null || state.isPreLayout) return
-
-        mRecycle?.apply {
-            detachAndScrapAttachedViews(this) //在布局之前，将所有的子View先Detach掉，放入到Scrap缓存中
-        }
-
-        val position = centerPosition
+    fun isNeedShow(displayFrame: Rect, item: Rect): Boolean {
+        return mGeometry.isNeedShow(item.left.toLong(), item.right.toLong(), displayFrame.left.toLong())
+    }
 
-        // 检查前后 20 个 item 是否需要绘制
-        var min = position - 5
-        var max = position + 5
+    /**
+     * 同步布局参数到 [mGeometry]
+     * @param itemCount Item 个数，预布局时为数据变化前的个数
+     */
+    private fun syncGeometry(itemCount: Int = getItemCount()) {
+        mGeometry.set(
+            mStartX, mStartY, mDecoratedChildWidth, mDecoratedChildHeight,
+            mainSpace, intervalDistance, itemCount, mIsLoop
+        )
+        mGeometry.intervalHeightDistance = intervalHeightDistance
+        mGeometry.setEffects(mIsFlatFlow, mItemGradualAlpha, mItemGradualGrey, mItem3D)
+    }
 
+    /**
+     * 支持 ItemAnimator 的增删动画：预布局时在数据变化前的位置布局，并补上删除后会出现的 Item，
+     * 正式布局时划出的 Item 作为消失的 View 布局，见 [preLayoutItems]、[layoutDisappearingViews]
+     */
+    override fun supportsPredictiveItemAnimations(): Boolean {
+        return true
+    }
 
-        for(i in min until max) {
-            val rect = getFrame(i)
+    /**
+     * 预布局：已 attach 的 Item（包括被删除的）保持在数据变化前的位置；被删除的 Item 空出的位置会由
+     * 两边的 Item 补上，在 attach 范围两端各多布局被删除个数的 Item，作为出现动画的起点
+     *
+     * 此时偏移量及 [RecyclerView.State.getItemCount] 都还是数据变化前的
+     */
+    private fun preLayoutItems(recycler: RecyclerView.Recycler, state: RecyclerView.State) {
+        if (mDecoratedChildWidth <= 0 || intervalDistance == 0) return
+        var removedCount = 0
+        for (i in 0 until childCount) {
+            val lp = getChildAt(i)?.layoutParams as RecyclerView.LayoutParams? ?: continue
+            if (lp.isItemRemoved) removedCount++
+        }
+        if (removedCount == 0) return
+        syncGeometry(state.itemCount)
+        mGeometry.layout(mOffsetAll, removedCount)
+        if (!mGeometry.hasAttached) return
+        val position = mGeometry.centerPosition(mOffsetAll)
+        for (i in mGeometry.attachedMin..mGeometry.attachedMax) {
+            addLayoutView(i, recycler, SCROLL_TO_LEFT, mGeometry.frameLeft(position), position, 0L)
+        }
+        updateDrawingOrder()
+    }
 
-            var actualPos = i % itemCount
-            // 循环滚动时，位置可能是负值，需要将其转换为对应的 item 的值
-            if (actualPos < 0) actualPos += itemCount
-            val scrap = recycler!!.getViewForPosition(actualPos)
-            checkTag(scrap.tag)
-            scrap.tag = TAG(i)
-            measureChildWithMargins(scrap, 0, 0)
-            if (scrollDirection == SCROLL_TO_RIGHT || mIsFlatFlow) { //item 向右滚动，新增的Item需要添加在最前面
-                addView(scrap, 0)
-            } else { //item 向左滚动，新增的item要添加在最后面
-                addView(scrap)
+    /**
+     * 正式布局前根据 ViewHolder 当前的位置更新已 attach 的 Item 对应的位置：数据变化时不受影响的 Item 保持 attach，
+     * 不需要重新获取；被删除、内容变化或者失效的 Item 放回 scrap，由 RecyclerView 处理动画或者重新绑定
+     */
+    private fun syncAttachedChildren(recycler: RecyclerView.Recycler, state: RecyclerView.State) {
+        attachedPositions.clear()
+        syncGeometry(state.itemCount)
+        val center = mGeometry.centerPosition(mOffsetAll)
+        for (i in childCount - 1 downTo 0) {
+            val child = getChildAt(i) ?: continue
+            val lp = child.layoutParams as RecyclerView.LayoutParams
+            val tag = checkTag(child.tag)
+            if (tag == null || lp.isItemRemoved || lp.isItemChanged || lp.isViewInvalid) {
+                detachAndScrapViewAt(i, recycler)
+                continue
+            }
+            val position = mGeometry.nearestPosition(lp.viewLayoutPosition, center)
+            if (attachedPositions.isAttached(position)) {
+                //循环模式下 Item 较少时同一个 adapter 位置可能对应多个 child，放回 scrap，按位置获取时直接取回
+                detachAndScrapViewAt(i, recycler)
+                continue
             }
-            layoutItem(scrap, rect) //将这个Item布局出来
+            tag.pos = position
+            attachedPositions.put(position)
         }
     }
 
-
-    fun isNeedShow(displayFrame: Rect, item: Rect): Boolean {
-        if(item.right > displayFrame.right + 5*intervalDistance ||
-                item.left < displayFrame.left - 5*intervalDistance) {
-            return false
+    /**
+     * 有预测动画时，布局后 scrap 中剩下的没有被删除的 Item 为被挤出 attach 范围的 Item，作为消失的 View 添加，
+     * 平移到数据变化后的位置，由 ItemAnimator 执行移出的动画
+     */
+    private fun layoutDisappearingViews(recycler: RecyclerView.Recycler, state: RecyclerView.State) {
+        if (!state.willRunPredictiveAnimations()) return
+        val scrapList = recycler.scrapList
+        if (scrapList.isEmpty()) return
+        //addDisappearingView 会将 View 移出 scrap，先复制一份
+        val holders = ArrayList(scrapList)
+        val center = mGeometry.centerPosition(mOffsetAll)
+        val vertical = isVertical
+        for (holder in holders) {
+            val view = holder.itemView
+            val lp = view.layoutParams as RecyclerView.LayoutParams
+            if (lp.isItemRemoved) continue //被删除的 Item 由 RecyclerView 执行删除动画
+            addDisappearingView(view, 0)
+            val position = mGeometry.nearestPosition(lp.viewLayoutPosition, center)
+            val left = (mGeometry.frameLeft(position) - mOffsetAll).toInt()
+            val oldLeft = if (vertical) getDecoratedTop(view) else getDecoratedLeft(view)
+            if (vertical) view.offsetTopAndBottom(left - oldLeft) else view.offsetLeftAndRight(left - oldLeft)
         }
-        return true
     }
 
     /**
@@ -221,216 +400,220 @@ class CoverFlowLayoutManger3(
      * 1，先清除已经超出屏幕的item
      *
      * 2，再绘制可以显示在屏幕里面的item
+     *
+     * 滑动时（[isLayoutPass] 为 false）只平移已有的 Item 并更新缩放等属性，
+     * 只有 attach 的 Item 发生变化时才请求重新布局
+     *
+     * Note: 该方法在滑动的每一帧都会调用，不要在这里分配对象
+     *
+     * @param isLayoutPass 是否在 [onLayoutChildren] 中调用
      */
     private fun layoutItems(
         recycler: RecyclerView.Recycler?,
-        state: RecyclerView.State?, scrollDirection: Int
+        state: RecyclerView.State?, scrollDirection: Int,
+        isLayoutPass: Boolean
     ) {
         if (state == null || state.isPreLayout) return
-
-        val displayFrame = Rect(mOffsetAll, 0, mOffsetAll + horizontalSpace, verticalSpace)
-        var position = 0
-        val scrollState = recyclerView?.scrollState
-        Log.i(TAG, " layoutItems , offsetAll: $mOffsetAll, childCount: $childCount, " +
-                "displayFrame rect: $displayFrame , width: ${displayFrame.width()}, ChildWidth: $mDecoratedChildWidth, scrollState: $scrollState, interval: $intervalDistance")
-        var minLeft = 0
-        for (i in 0 until childCount) {
-            val child = getChildAt(i)
-            if(child == null) {
-                Log.i(TAG, " getChildAt rect: position: $i is null ")
-                continue
-            }
-            position = if (child.tag != null) {
-                val tag = checkTag(child.tag)
-                tag?.pos?:0
-            } else {
-                getPosition(child)
-                Log.i(TAG, " layoutItems, getPosition ")
-            }
-            val rect = getFrame(position)
-
-            if (!isNeedShow(displayFrame, rect)/*!Rect.intersects(displayFrame, rect)*/) { //Item没有在显示区域，就说明需要回收
-                removeAndRecycleView(child, recycler!!) //回收滑出屏幕的View
-                mHasAttachedItems.delete(position)
-                mActualPosition2AdapterPosition.delete(position)
-                Log.i(TAG, " layoutItems, removeAndRecycleView, position: $position, i: $i, rect: $rect ")
+        tracer.beginSection(if (isLayoutPass) CoverFlowTracer.SECTION_LAYOUT else CoverFlowTracer.SECTION_SCROLL)
+        val startNanos = System.nanoTime()
+        syncGeometry(state.itemCount)
+        if (!isLayoutPass) mStats.scrollPasses++
+
+        val scrollState = recyclerView?.scrollState ?: RecyclerView.SCROLL_STATE_IDLE
+        if (enableLog) {
+            Log.i(TAG, " layoutItems , offsetAll: $mOffsetAll, childCount: $childCount, " +
+                    "ChildWidth: $mDecoratedChildWidth, scrollState: $scrollState, interval: $intervalDistance")
+        }
+        val attachedChanged = mGeometry.layout(mOffsetAll)
+        mLayoutCenterPosition = mGeometry.centerPosition(mOffsetAll)
+        // 宽度不同的 Item 测量后会改变后面 Item 的偏移量，记录中间 Item 的偏移量用于修正
+        val anchorPosition = if (isVariableItemWidth) mGeometry.centerPosition(mOffsetAll) else 0
+        val anchorOffset = if (isVariableItemWidth) mGeometry.calculateOffsetForPosition(anchorPosition) else 0L
+        var minLeft = 0L
+        // 倒序遍历，回收 child 时不会影响还未遍历的 child 的下标
+        for (i in childCount - 1 downTo 0) {
+            val child = getChildAt(i) ?: continue
+            val position = checkTag(child.tag)?.pos ?: getPosition(child)
+
+            if (!mGeometry.isAttached(position)) { //Item没有在显示区域，就说明需要回收
+                if (isLayoutPass && state.willRunPredictiveAnimations()) {
+                    detachAndScrapView(child, recycler!!) //有预测动画时作为消失的 View 布局，见 layoutDisappearingViews
+                } else {
+                    removeAndRecycleView(child, recycler!!) //回收滑出屏幕的View
+                    mStats.viewsRecycled++
+                }
+                attachedPositions.remove(position)
+                if (enableLog) {
+                    Log.i(TAG, " layoutItems, removeAndRecycleView, position: $position, i: $i ")
+                }
             } else { //Item还在显示区域内，更新滑动后Item的位置
-                if(minLeft < rect.left) {
-                    minLeft = rect.left
+                val left = mGeometry.frameLeft(position)
+                if (minLeft < left) {
+                    minLeft = left
                 }
-                layoutItem(child, rect) //更新Item位置
-                Log.i(TAG, " layoutItem, updateLayout position: $position, i: $i, rect: $rect ")
-                mHasAttachedItems.put(position, true)
+                layoutItem(child, position, !isLayoutPass) //更新Item位置
+                attachedPositions.put(position)
             }
         }
 
-        position = centerPosition
-        Log.i(TAG, " layoutItem, centerPosition: $position, startAddView ---------------------------- ")
-        // 检查前后 20 个 item 是否需要绘制
-        var min = position - 3
-        var max = position + 3
-
-        var centerRect = getFrame(position)
-
-        if (!mIsLoop) {
-            if (min < 0) min = 0
-            if (max > itemCount) max = itemCount
-        }
-        if(scrollDirection == SCROLL_TO_RIGHT) {
-            for(i in max downTo min) {
-                addLayoutView(i, displayFrame, recycler, scrollDirection, centerRect, position, minLeft)
-            }
-        }else {
-            for (i in min until max) {
-                addLayoutView(i, displayFrame, recycler, scrollDirection, centerRect, position, minLeft)
+        if (attachedChanged && mGeometry.hasAttached) {
+            val position = mGeometry.centerPosition(mOffsetAll)
+            val centerLeft = mGeometry.frameLeft(position)
+            val min = mGeometry.attachedMin
+            val max = mGeometry.attachedMax
+            if (scrollDirection == SCROLL_TO_RIGHT) {
+                for (i in max downTo min) {
+                    addLayoutView(i, recycler, scrollDirection, centerLeft, position, minLeft)
+                }
+            } else {
+                for (i in min..max) {
+                    addLayoutView(i, recycler, scrollDirection, centerLeft, position, minLeft)
+                }
             }
         }
-        requestLayout()
+        if (attachedChanged && !isLayoutPass) {
+            mStats.layoutRequests++
+            requestLayout()
+        }
+        val itemWidthChanged = mItemWidthChanged
+        if (itemWidthChanged) {
+            // 保持中间的 Item 不动，按新的宽度重新布局一次
+            mItemWidthChanged = false
+            mOffsetAll += mGeometry.calculateOffsetForPosition(anchorPosition) - anchorOffset
+        }
+        updateDrawingOrder()
+        mStats.recordLayoutTime(System.nanoTime() - startNanos)
+        tracer.endSection()
+        if (itemWidthChanged) {
+            layoutItems(recycler, state, scrollDirection, isLayoutPass)
+            return
+        }
 
-        if(scrollState != RecyclerView.SCROLL_STATE_IDLE) {
+        if (scrollState != RecyclerView.SCROLL_STATE_IDLE) {
             mSelectedListener?.onItemScrolled()
         }
 
     }
 
-    private fun addLayoutView(i: Int, displayFrame: Rect,   recycler: RecyclerView.Recycler?, scrollDirection: Int, centerRect: Rect, centerPosition: Int, minLeft: Int) {
-        val rect = getFrame(i)
-        if (isNeedShow(displayFrame, rect)/*Rect.intersects(displayFrame, rect)*/ &&
-            !mHasAttachedItems[i]
-        ) { //重新加载可见范围内的Item
+    private fun addLayoutView(i: Int, recycler: RecyclerView.Recycler?, scrollDirection: Int, centerLeft: Long, centerPosition: Int, minLeft: Long) {
+        if (!attachedPositions.isAttached(i)) { //重新加载可见范围内的Item
+            val left = mGeometry.frameLeft(i)
             // 循环滚动时，计算实际的 item 位置
-            var actualPos = i % itemCount
-            // 循环滚动时，位置可能是负值，需要将其转换为对应的 item 的值
-            if (actualPos < 0) actualPos += itemCount
+            val actualPos = mGeometry.adapterPosition(i)
+            tracer.beginSection(CoverFlowTracer.SECTION_BIND)
             val scrap = recycler!!.getViewForPosition(actualPos)
-            checkTag(scrap.tag)
-            scrap.tag = TAG(i)
+            mStats.viewsRequested++
+            // 复用回收池中 View 上已有的 TAG，避免每次添加都创建新对象
+            val tag = checkTag(scrap.tag)
+            if (tag != null) {
+                tag.pos = i
+            } else {
+                scrap.tag = TAG(i)
+            }
             measureChildWithMargins(scrap, 0, 0)
-            if ((scrollDirection == SCROLL_TO_RIGHT && (rect.left <= centerRect.left || rect.left < minLeft || i <= centerPosition)) || mIsFlatFlow) { //item 向右滚动，新增的Item需要添加在最前面
+            val measuredWidth = if (isVertical) getDecoratedMeasuredHeight(scrap) else getDecoratedMeasuredWidth(scrap)
+            if (mGeometry.setItemWidth(actualPos, measuredWidth)) {
+                mItemWidthChanged = true
+            }
+            tracer.endSection()
+            if ((scrollDirection == SCROLL_TO_RIGHT && (left <= centerLeft || left < minLeft || i <= centerPosition)) || mIsFlatFlow) { //item 向右滚动，新增的Item需要添加在最前面
                 addView(scrap, 0)
             } else { //item 向左滚动，新增的item要添加在最后面
                 addView(scrap)
             }
-            layoutItem(scrap, rect) //将这个Item布局出来
-            mActualPosition2AdapterPosition.put(i, actualPos)
-            Log.i(TAG, " layoutItem, addView rect: $rect , position: $i, actualPos: $actualPos, direction: $scrollDirection")
-            mHasAttachedItems.put(i, true)
+            mStats.viewsAdded++
+            layoutItem(scrap, i, false) //将这个Item布局出来
+            if (enableLog) {
+                Log.i(TAG, " layoutItem, addView left: $left , position: $i, actualPos: $actualPos, direction: $scrollDirection")
+            }
+            attachedPositions.put(i)
         }
     }
 
     /**
-     * 布局Item位置
+     * 布局Item位置，位置及缩放等属性由 [mGeometry] 计算，这里只负责应用到 View 上
      * @param child 要布局的Item
-     * @param frame 位置信息
-     */
-    private fun layoutItem(child: View?, frame: Rect) {
-        child?.apply {
-            val scaleXY = computeScale(frame.left - mOffsetAll)
-            val scaledWidth = frame.width() * scaleXY
-            val scaleWidth = frame.width() - scaledWidth
-            var left = frame.left - mOffsetAll
-
-            val scaledHeight = frame.height() * scaleXY
-            val scaleHeight = frame.height() - scaledHeight
-            if(left >= mStartX) {
-                left += (scaleWidth/2).toInt()
-            }else {
-                left -= (scaleWidth/2).toInt()
-            }
+     * @param index item位置
+     * @param offsetOnly 为 true 时如果 Item 大小没变，只平移 Item，不重新 layout
+     */
+    private fun layoutItem(child: View?, index: Int, offsetOnly: Boolean) {
+        val slot = mGeometry.slotOf(index)
+        if (slot < 0 || child == null) return
+        val vertical = isVertical
+        // 纵向时交换 X、Y 轴
+        val left = if (vertical) mGeometry.tops[slot] else mGeometry.lefts[slot]
+        val top = if (vertical) mGeometry.lefts[slot] else mGeometry.tops[slot]
+        val frameWidth = if (vertical) mGeometry.heights[slot] else mGeometry.widths[slot]
+        val frameHeight = if (vertical) mGeometry.widths[slot] else mGeometry.heights[slot]
+        mViewApplier.layout(this, child, left, top, left + frameWidth, top + frameHeight, offsetOnly)
+        mViewApplier.applyProperties(child, mGeometry, slot, vertical)
+        mViewApplier.applyCache(child, abs(index - mLayoutCenterPosition), cacheDepth)
+    }
 
-            val top = frame.top + (scaleHeight/2).toInt()
-            layoutDecorated(
-                this,
-                left,
-                top,
-                left + frame.width(),
-                top + frame.height()
-            )
+    /**
+     * 记录一次绘制的耗时，由 [RecyclerCoverFlow] 调用
+     */
+    internal fun recordDrawTime(nanos: Long) {
+        mStats.drawPasses++
+        mStats.drawTimeNanos += nanos
+    }
 
-            if (!mIsFlatFlow) { //不是平面普通滚动的情况下才进行缩放
-                scaleX = scaleXY //缩放
-                scaleY = scaleXY //缩放
-            }
-            if (mItemGradualAlpha) {
-                alpha = computeAlpha(frame.left - mOffsetAll)
-            }
-            if (mItemGradualGrey) {
-                greyItem(this, frame)
-            }
-            if (mItem3D) {
-                item3D(this, frame)
-            }
+    /**
+     * 记录一次 Item 绘制的耗时，由 [RecyclerCoverFlow] 调用
+     * @param cached Item 是否从 layer 绘制
+     */
+    internal fun recordItemDrawTime(cached: Boolean, nanos: Long) {
+        if (cached) {
+            mStats.cachedItemDraws++
+            mStats.cachedItemDrawTimeNanos += nanos
+        } else {
+            mStats.uncachedItemDraws++
+            mStats.uncachedItemDrawTimeNanos += nanos
         }
     }
 
     /**
-     * 动态获取Item的位置信息
-     * @param index item位置
-     * @return item的Rect信息
-     */
-    private fun getFrame(index: Int): Rect {
-        var frame = mAllItemFrames[index]
-        if (frame == null) {
-            frame = Rect()
-            val offset = mStartX + intervalDistance * index.toFloat() //原始位置累加（即累计间隔距离）
-            frame[offset.roundToInt(), mStartY, (offset + mDecoratedChildWidth).roundToInt()] =
-                mStartY + mDecoratedChildHeight
-        }
-        return frame
-    }
-
-    /**
-     * 变化Item的灰度值
-     * @param child 需要设置灰度值的Item
-     * @param frame 位置信息
-     */
-    private fun greyItem(child: View?, frame: Rect) {
-        val value = computeGreyScale(frame.left - mOffsetAll)
-        val cm = ColorMatrix(
-            floatArrayOf(
-                value,
-                0f,
-                0f,
-                0f,
-                120 * (1 - value),
-                0f,
-                value,
-                0f,
-                0f,
-                120 * (1 - value),
-                0f,
-                0f,
-                value,
-                0f,
-                120 * (1 - value),
-                0f,
-                0f,
-                0f,
-                1f,
-                250 * (1 - value)
-            )
-        )
-        //        cm.setSaturation(0.9f);
+     * 记录一次 Item 绘制的遮挡裁剪结果，由 [RecyclerCoverFlow] 调用
+     * @param area Item 的面积
+     * @param visibleArea 没有被遮挡、实际绘制的面积
+     */
+    internal fun recordItemDraw(area: Float, visibleArea: Float) {
+        mStats.itemDrawArea += area.toLong()
+        mStats.culledItemArea += (area - visibleArea).toLong()
+        if (visibleArea <= 0f) {
+            mStats.culledItemDraws++
+        } else if (visibleArea < area) {
+            mStats.clippedItemDraws++
+        }
+    }
 
-        // Create a paint object with color matrix
-        val greyPaint = Paint()
-        greyPaint.colorFilter = ColorMatrixColorFilter(cm)
+    /**
+     * 添加自定义的 Item 效果，在内置效果之后执行
+     */
+    fun addItemTransformer(transformer: ItemTransformer<CoverFlowGeometry>) {
+        mGeometry.addTransformer(transformer)
+        requestLayout()
+    }
 
-        // Create a hardware layer with the grey paint
-        child!!.setLayerType(View.LAYER_TYPE_HARDWARE, greyPaint)
-        if (value >= 1) {
-            // Remove the hardware layer
-            child.setLayerType(View.LAYER_TYPE_NONE, null)
-        }
+    fun removeItemTransformer(transformer: ItemTransformer<CoverFlowGeometry>) {
+        mGeometry.removeTransformer(transformer)
+        requestLayout()
     }
 
-    private fun item3D(child: View?, frame: Rect) {
-        val center = (frame.left + frame.right - 2 * mOffsetAll) / 2f
-        var value =
-            (center - (mStartX + mDecoratedChildWidth / 2f)) * 1f / (itemCount * intervalDistance)
-        value = Math.sqrt(Math.abs(value).toDouble()).toFloat()
-        val symbol = if (center > mStartX + mDecoratedChildWidth / 2f) -1 else 1
-        child!!.rotationY = symbol * 50 * value
+    /**
+     * 是否正在执行 [startScroll] 发起的滚动动画
+     *
+     * 目标 View 已经 attach 时 RecyclerView 在 onTargetFound 之后立即 stop SmoothScroller，
+     * 但 ViewFlinger 仍会继续滚动，isSmoothScrolling 在动画剩余的时间里为 false，所以自己记录，
+     * 直到滚动停止（或者被手指打断）
+     */
+    private var mSettling = false
+
+    /**
+     * 滚动动画开始时已经在目标位置，没有实际滚动
+     */
+    internal fun onSettleSkipped() {
+        mSettling = false
     }
 
     var hasScrolled = false;
@@ -438,9 +621,12 @@ class CoverFlowLayoutManger3(
         super.onScrollStateChanged(state)
         when (state) {
             RecyclerView.SCROLL_STATE_IDLE -> {
+               mSettling = false
+               if (mIsLoop) renormalizeOffset()
                fixOffsetWhenFinishScroll()  //滚动停止时
             }
             RecyclerView.SCROLL_STATE_DRAGGING -> {
+                mSettling = false
                 hasScrolled = true
             }
             RecyclerView.SCROLL_STATE_SETTLING -> {
@@ -451,12 +637,15 @@ class CoverFlowLayoutManger3(
 
     override fun onLayoutCompleted(state: RecyclerView.State?) {
         super.onLayoutCompleted(state)
-        Log.i(TAG, " onLayoutCompleted startScroll")
+        if (enableLog) {
+            Log.i(TAG, " onLayoutCompleted startScroll")
+        }
         onSelectedCallBack()
     }
 
     override fun scrollToPosition(position: Int) {
         if (position < 0 || position > itemCount - 1) return
+        mPendingSavedState = null
         mOffsetAll = calculateOffsetForPosition(getChildActualPos(position))
         if (mRecycle == null || mState == null) { //如果RecyclerView还没初始化完，先记录下要滚动的位置
             selectedPos = position
@@ -464,44 +653,188 @@ class CoverFlowLayoutManger3(
             layoutItems(
                 mRecycle,
                 mState,
-                if (position > selectedPos) SCROLL_TO_LEFT else SCROLL_TO_RIGHT
+                if (position > selectedPos) SCROLL_TO_LEFT else SCROLL_TO_RIGHT,
+                false
             )
             onSelectedCallBack()
         }
-        Log.i(TAG, "scrollToPosition, position: $position  ")
+        if (enableLog) {
+            Log.i(TAG, "scrollToPosition, position: $position  ")
+        }
     }
 
+    /**
+     * 平滑滚动到 [position]
+     *
+     * 目标距离当前位置超过 [CoverFlowGeometry.MAX_SMOOTH_SCROLL_ITEMS] 个 Item 时，先直接跳到距离目标
+     * MAX_SMOOTH_SCROLL_ITEMS 个 Item 的位置，再平滑滚动过去：中间的 Item 不会创建、绑定，
+     * 但画面会在滚动开始时突变一次，不是从当前位置连续滚动到目标
+     */
     override fun smoothScrollToPosition(
         recyclerView: RecyclerView,
         state: RecyclerView.State,
         position: Int
     ) {
-        // TODO 循环模式暂不支持平滑滚动
-        if (mIsLoop) return
-        val finalOffset = calculateOffsetForPosition(position)
+        if (position < 0 || position > itemCount - 1) return
         if (mRecycle == null || mState == null) { //如果RecyclerView还没初始化完，先记录下要滚动的位置
+            mPendingSavedState = null
             selectedPos = position
-        } else {
-            startScroll(mOffsetAll, finalOffset)
+            return
+        }
+        syncGeometry()
+        val current = mGeometry.centerPosition(mOffsetAll)
+        // 循环模式下向前、向后都可以到达，选择较近的方向
+        val target = mGeometry.nearestPosition(position, current)
+        // 距离太远时先跳到目标附近再滚动，避免绑定中间所有的 Item
+        val start = mGeometry.smoothScrollStartPosition(current, target)
+        if (start != current) {
+            mOffsetAll = calculateOffsetForPosition(start)
+            layoutItems(mRecycle, mState, if (start > current) SCROLL_TO_LEFT else SCROLL_TO_RIGHT, false)
         }
+        startScroll(mOffsetAll, calculateOffsetForPosition(target))
     }
 
     override fun canScrollHorizontally(): Boolean {
-        return true
+        return !isVertical
+    }
+
+    override fun canScrollVertically(): Boolean {
+        return isVertical
+    }
+
+    override fun onSaveInstanceState(): Parcelable? {
+        mPendingSavedState?.let { //还没有布局过，保存的状态还没有使用
+            return SavedState(it)
+        }
+        val state = SavedState()
+        if (mRecycle == null || mState == null) {
+            state.offset = calculateOffsetForPosition(selectedPos)
+        } else {
+            state.offset = mOffsetAll
+        }
+        state.intervalDistance = intervalDistance
+        state.itemCount = itemCount
+        state.isLoop = mIsLoop
+        syncGeometry()
+        state.centerPosition = mGeometry.centerPosition(state.offset)
+        state.adapterPosition = mGeometry.adapterPosition(state.centerPosition)
+        return state
+    }
+
+    override fun onRestoreInstanceState(state: Parcelable?) {
+        if (state is SavedState) {
+            mPendingSavedState = state
+            requestLayout()
+        }
+    }
+
+    /**
+     * 计算恢复后的偏移量：Item 间隔、个数、循环模式都没有变化时恢复原来的偏移量（包括循环的圈数），
+     * 否则滚动到原来选中的 Item
+     */
+    private fun restoredOffset(state: SavedState, itemCount: Int): Long {
+        if (state.itemCount == itemCount && state.isLoop == mIsLoop) {
+            // 宽度不同时测量出的宽度没有保存，按位置恢复
+            if (state.intervalDistance == intervalDistance && !isVariableItemWidth) return state.offset
+            return calculateOffsetForPosition(state.centerPosition)
+        }
+        val position = if (state.adapterPosition > itemCount - 1) itemCount - 1 else state.adapterPosition
+        return calculateOffsetForPosition(position)
+    }
+
+    /**
+     * 初始化时预取的 Item 个数，嵌套在纵向列表中时，外层列表预取该 Item 时会同时预取这么多个卡片
+     */
+    var initialPrefetchItemCount = DEFAULT_INITIAL_PREFETCH_ITEM_COUNT
+
+    /**
+     * 滑动时预取滑动方向上下一个即将 attach 的 Item，让 GapWorker 在空闲时间提前创建并绑定
+     */
+    override fun collectAdjacentPrefetchPositions(
+        dx: Int, dy: Int, state: RecyclerView.State,
+        layoutPrefetchRegistry: LayoutPrefetchRegistry
+    ) {
+        val delta = if (isVertical) dy else dx
+        if (delta == 0 || itemCount <= 0 || mDecoratedChildWidth <= 0 || !mGeometry.hasAttached) return
+        syncGeometry()
+        // 手指从右向左（纵向时从下向上）滑动，delta > 0，右边（下边）的 Item 即将出现
+        val position = if (delta > 0) mGeometry.attachedMax + 1 else mGeometry.attachedMin - 1
+        if (!mIsLoop && (position < 0 || position >= itemCount)) return
+        val distance = mGeometry.distanceToAttach(position, mOffsetAll + delta)
+        layoutPrefetchRegistry.addPosition(mGeometry.adapterPosition(position), distance)
+    }
+
+    /**
+     * 嵌套在其他 RecyclerView 中时，预取中间位置及其两边的 Item
+     */
+    override fun collectInitialPrefetchPositions(
+        adapterItemCount: Int,
+        layoutPrefetchRegistry: LayoutPrefetchRegistry
+    ) {
+        val count = minOf(initialPrefetchItemCount, adapterItemCount)
+        if (count <= 0) return
+        for (i in 0 until count) {
+            // 0, 1, -1, 2, -2 ... 依次向两边展开
+            val dist = (i + 1) / 2
+            var position = selectedPos + if (i % 2 == 1) dist else -dist
+            if (mIsLoop) {
+                position %= adapterItemCount
+                if (position < 0) position += adapterItemCount
+            } else if (position < 0 || position >= adapterItemCount) {
+                continue
+            }
+            layoutPrefetchRegistry.addPosition(position, 0)
+        }
+    }
+
+    /**
+     * 插入 Item 时修正偏移量，保持显示在中间的 Item 不变，其他 Item 的 View 不需要重新绑定
+     */
+    override fun onItemsAdded(recyclerView: RecyclerView, positionStart: Int, itemCount: Int) {
+        super.onItemsAdded(recyclerView, positionStart, itemCount)
+        if (mRecycle == null || mState == null || intervalDistance == 0) return
+        mOffsetAll = mGeometry.offsetAfterItemsAdded(mOffsetAll, positionStart, itemCount)
+        if (enableLog) {
+            Log.i(TAG, " onItemsAdded, positionStart: $positionStart, itemCount: $itemCount, offsetAll: $mOffsetAll")
+        }
+    }
+
+    override fun onItemsRemoved(recyclerView: RecyclerView, positionStart: Int, itemCount: Int) {
+        super.onItemsRemoved(recyclerView, positionStart, itemCount)
+        if (mRecycle == null || mState == null || intervalDistance == 0) return
+        mOffsetAll = mGeometry.offsetAfterItemsRemoved(mOffsetAll, positionStart, itemCount)
+        if (enableLog) {
+            Log.i(TAG, " onItemsRemoved, positionStart: $positionStart, itemCount: $itemCount, offsetAll: $mOffsetAll")
+        }
+    }
+
+    override fun onItemsMoved(recyclerView: RecyclerView, from: Int, to: Int, itemCount: Int) {
+        super.onItemsMoved(recyclerView, from, to, itemCount)
+        if (mRecycle == null || mState == null || intervalDistance == 0) return
+        mOffsetAll = mGeometry.offsetAfterItemMoved(mOffsetAll, from, to)
+    }
+
+    /**
+     * 数据整体变化时，之前测量的宽度都不再有效
+     */
+    override fun onItemsChanged(recyclerView: RecyclerView) {
+        super.onItemsChanged(recyclerView)
+        mGeometry.itemWidths?.clear()
     }
 
     override fun onAdapterChanged(
         oldAdapter: RecyclerView.Adapter<*>?,
         newAdapter: RecyclerView.Adapter<*>?
     ) {
-        removeAllViews()
+        // 不直接 removeAllViews：setAdapter 时 RecyclerView 已经回收了所有 child，
+        // swapAdapter 保留兼容的 ViewHolder 时由下一次布局从 scrap 中重新绑定，不需要重新创建
+        mGeometry.itemWidths?.clear()
         mRecycle = null
         mState = null
         mOffsetAll = 0
         selectedPos = 0
         mLastSelectPosition = 0
-        mHasAttachedItems.clear()
-        mAllItemFrames.clear()
+        attachedPositions.clear()
     }
 
     /**
@@ -517,66 +850,30 @@ class CoverFlowLayoutManger3(
         get() = height - paddingBottom - paddingTop
 
     /**
-     * 获取最大偏移量
-     */
-    private val maxOffset: Float
-        get() = ((itemCount - 1) * intervalDistance).toFloat()
-
-    /**
-     * 计算Item缩放系数
-     * @param x Item的x坐标
-     * @return 缩放系数
+     * 滚动方向上的空间大小
      */
-    private fun computeScale(x: Int): Float {
-//        var scale =
-//            1 - abs(x - mStartX) * 1.0f / abs(mStartX + mDecoratedChildWidth / mIntervalRatio)
-//
-//        if (scale < 0) scale = 0f
-//        if (scale > 1) scale = 1f
-        //距离最中间的第几个view，每个view height被缩放的距离相等，因此可以获得该view被缩放的高度
-        val scaledHeight = (abs(x - mStartX)* 1.0f / intervalDistance) * intervalHeightDistance
-        val scale =  (getItemHeight() - scaledHeight) / getItemHeight()
-
-        return scale
-    }
+    private val mainSpace: Int
+        get() = if (isVertical) verticalSpace else horizontalSpace
 
     /**
-     * 计算Item的灰度值
-     * @param x Item的偏移量
-     * @return 灰度系数
+     * 与滚动方向垂直的空间大小
      */
-    private fun computeGreyScale(x: Int): Float {
-        val itemMidPos = x + mDecoratedChildWidth / 2.toFloat() //item中点x坐标
-        val itemDx2Mid = Math.abs(itemMidPos - horizontalSpace / 2f) //item中点距离控件中点距离
-        var value = 1 - itemDx2Mid * 1.0f / (horizontalSpace / 2)
-        if (value < 0.1) value = 0.1f
-        if (value > 1) value = 1f
-        value = Math.pow(value.toDouble(), .8).toFloat()
-        return value
-    }
+    private val crossSpace: Int
+        get() = if (isVertical) horizontalSpace else verticalSpace
 
     /**
-     * 计算Item半透值
-     * @param x Item的偏移量
-     * @return 缩放系数
+     * 获取最大偏移量
      */
-    private fun computeAlpha(x: Int): Float {
-        var alpha =
-            1 - Math.abs(x - mStartX) * 1.0f / Math.abs(mStartX + mDecoratedChildWidth / mIntervalRatio)
-
-        alpha = computeScale(x)
-        alpha = alpha*alpha
-        if (alpha < 0.1f) alpha = 0.1f
-        if (alpha > 1) alpha = 1.0f
-        return alpha
-    }
+    private val maxOffset: Long
+        get() = calculateOffsetForPosition(itemCount - 1)
 
     /**
      * 计算Item所在的位置偏移, 相对于中间的距离
      * @param position 要计算Item位置
      */
-     fun calculateOffsetForPosition(position: Int): Int {
-        return (intervalDistance * position.toFloat()).roundToInt()
+     fun calculateOffsetForPosition(position: Int): Long {
+        mGeometry.intervalDistance = intervalDistance
+        return mGeometry.calculateOffsetForPosition(position)
     }
 
     /**
@@ -584,88 +881,121 @@ class CoverFlowLayoutManger3(
      */
      fun fixOffsetWhenFinishScroll() {
         if (intervalDistance != 0) { // 判断非 0 ，否则除 0 会导致异常
-            var scrollN = (mOffsetAll * 1.0f / intervalDistance).toInt()
-            val moreDx = (mOffsetAll % intervalDistance).toFloat()
-            if (abs(moreDx) > intervalDistance * 0.5) {
-                if (moreDx > 0) scrollN++ else scrollN--
+            val scrollN = mGeometry.fixedScrollPosition(mOffsetAll)
+            if (enableLog) {
+                Log.i(TAG, " fixOffsetWhenFinishScroll  ")
             }
-            Log.i(TAG, " fixOffsetWhenFinishScroll  ")
-            val finalOffset = scrollN * intervalDistance
+            val finalOffset = calculateOffsetForPosition(scrollN)
             startScroll(mOffsetAll, finalOffset)
         //    selectedPos = abs((finalOffset * 1.0f / intervalDistance).roundToInt()) % itemCount
         }
     }
 
 
+    /**
+     * 循环模式下偏移量超过 [CoverFlowGeometry.RENORMALIZE_THRESHOLD] 时减去整数圈，避免长时间自动轮播后溢出。
+     * 减去整数圈后每个 Item 在屏幕上的位置以及对应的 adapter 位置都不变，监听者感知不到
+     */
+    private fun renormalizeOffset() {
+        syncGeometry()
+        val laps = mGeometry.renormalizeLaps(mOffsetAll)
+        if (laps == 0) return
+        val delta = -laps * itemCount
+        val offsetDelta = -laps * mGeometry.cycleLength
+        mOffsetAll += offsetDelta
+        selectedPos += delta
+        mLastSelectPosition += delta
+        for (i in 0 until childCount) {
+            checkTag(getChildAt(i)?.tag)?.let { it.pos += delta }
+        }
+        attachedPositions.shift(delta)
+        mGeometry.shiftPositions(delta)
+        if (enableLog) {
+            Log.i(TAG, " renormalizeOffset, laps: $laps, offsetAll: $mOffsetAll")
+        }
+    }
+
     fun getFixedScrollPosition(): Int {
         if (intervalDistance != 0) { // 判断非 0 ，否则除 0 会导致异常
-            var scrollN = (mOffsetAll * 1.0f / intervalDistance).toInt()
-            val moreDx = (mOffsetAll % intervalDistance).toFloat()
-            if (abs(moreDx) > intervalDistance * 0.5) {
-                if (moreDx > 0) scrollN++ else scrollN--
-            }
-            return scrollN
+            return mGeometry.fixedScrollPosition(mOffsetAll)
         }else {
             return RecyclerView.NO_POSITION
         }
     }
 
+    /**
+     * 惯性滑动时需要停留的位置，循环模式下可能为负值或者超过 itemCount
+     * @param flingDistance 根据速度估算出的惯性滑动距离
+     * @param maxCards 一次惯性滑动最多越过的 Item 个数
+     */
+    fun findFlingTargetPosition(flingDistance: Int, maxCards: Int): Int {
+        syncGeometry()
+        return mGeometry.flingTargetPosition(mOffsetAll, flingDistance, maxCards)
+    }
+
+    /**
+     * 平滑滚动到 [findFlingTargetPosition] 计算出的位置
+     */
+    internal fun flingToPosition(position: Int) {
+        startScroll(mOffsetAll, calculateOffsetForPosition(position))
+    }
+
     /**
      * 滚动到指定X轴位置
      * @param from X轴方向起始点的偏移量
      * @param to X轴方向终点的偏移量
      */
-    private fun startScroll(from: Int, to: Int) {
-        if (mAnimation?.isRunning == true) {
-            mAnimation?.cancel()
-        }
-        Log.i(TAG, "startScroll, from: $from, to: $to ")
-        mAnimation = ValueAnimator.ofFloat(from.toFloat(), to.toFloat())
-        mAnimation?.apply {
-            duration = 500
-            interpolator = DecelerateInterpolator()
-            addUpdateListener(ValueAnimator.AnimatorUpdateListener { animation ->
-            //    mOffsetAll = (animation.animatedValue as Float).roundToInt()
-                Log.i(TAG, "startScroll, animator offsetAll: $mOffsetAll ")
-                val currentValue = (animation.animatedValue as Float).roundToInt()
-                val direction = if (mOffsetAll < currentValue) SCROLL_TO_LEFT else SCROLL_TO_RIGHT
-                if(currentValue != mOffsetAll) {
-                    mOffsetAll = currentValue
-                    layoutItems(mRecycle, mState, direction)
-                }
-            })
-            addListener(object : Animator.AnimatorListener {
-                override fun onAnimationStart(animation: Animator) {}
-                override fun onAnimationEnd(animation: Animator) {
-                    onSelectedCallBack()
-                }
-                override fun onAnimationCancel(animation: Animator) {}
-                override fun onAnimationRepeat(animation: Animator) {}
-            })
-            start()
+    private fun startScroll(from: Long, to: Long) {
+        if (enableLog) {
+            Log.i(TAG, "startScroll, from: $from, to: $to ")
+        }
+        val context = recyclerView?.context
+        if (from == to || context == null) {
+            // 已经停在目标位置，滚动结束
+            if (from != to) {
+                mOffsetAll = to
+                layoutItems(mRecycle, mState, if (from < to) SCROLL_TO_LEFT else SCROLL_TO_RIGHT, false)
+            }
+            onSelectedCallBack()
+            return
         }
+        // 由 RecyclerView 驱动滚动，结束时进入 SCROLL_STATE_IDLE，由 onScrollStateChanged 修正位置并回调选中
+        val scroller = CoverFlowSmoothScroller(context, this, to)
+        scroller.targetPosition = mGeometry.adapterPosition(mGeometry.centerPosition(to)).coerceAtLeast(0)
+        mSettling = true
+        startSmoothScroll(scroller)
     }
 
     /**
      * 获取Item间隔
      */
    var intervalDistance: Int = 150
+        set(value) {
+            field = value
+            mGeometry.intervalDistance = value
+        }
 
     var intervalHeightDistance: Int = 75
+        set(value) {
+            field = value
+            mGeometry.intervalHeightDistance = value
+        }
 
     /**
      * 计算当前选中位置，并回调
      */
     private fun onSelectedCallBack() {
-        selectedPos = (mOffsetAll / intervalDistance.toFloat()).roundToInt()
-        val adapterPos = mActualPosition2AdapterPosition.get(selectedPos, -10000)
+        selectedPos = mGeometry.centerPosition(mOffsetAll)
         var realSelected = selectedPos % itemCount
         if(realSelected < 0) {
             realSelected += itemCount
         }
         if (mSelectedListener != null && (selectedPos == 0 || selectedPos != mLastSelectPosition || hasScrolled)) {
             mSelectedListener!!.onItemSelected(realSelected)
-            Log.i(TAG, " onSelectedCallBack, selectedPos: $selectedPos, realSelected: $realSelected, adapterPos: $adapterPos, firstPos: $firstVisiblePosition, lastPos: $lastVisiblePosition ")
+            mStats.selectionCallbacks++
+            if (enableLog) {
+                Log.i(TAG, " onSelectedCallBack, selectedPos: $selectedPos, realSelected: $realSelected, firstPos: $firstVisiblePosition, lastPos: $lastVisiblePosition ")
+            }
         }
         hasScrolled = false;
         mLastSelectPosition = selectedPos
@@ -690,12 +1020,11 @@ class CoverFlowLayoutManger3(
      */
     val firstVisiblePosition: Int
         get() {
-            val displayFrame = Rect(mOffsetAll, 0, mOffsetAll + horizontalSpace, verticalSpace)
+            syncGeometry()
             val cur = centerPosition
             var i = cur - 1
             while (true) {
-                val rect = getFrame(i)
-                if (rect.left <= displayFrame.left) {
+                if (mGeometry.frameLeft(i) <= mOffsetAll) {
                 //    return abs(i) % itemCount
                     var realPos = i % itemCount
                     if(realPos < 0) {
@@ -714,18 +1043,67 @@ class CoverFlowLayoutManger3(
      */
     val lastVisiblePosition: Int
         get() {
-            val displayFrame = Rect(mOffsetAll, 0, mOffsetAll + horizontalSpace, verticalSpace)
+            syncGeometry()
             val cur = centerPosition
             var i = cur + 1
             while (true) {
-                val rect = getFrame(i)
-                if (rect.right >= displayFrame.right) {
+                if (mGeometry.frameRight(i) >= mOffsetAll + mainSpace) {
                     return abs(i) % itemCount
                 }
                 i++
             }
         }
 
+    /**
+     * 计算所有 child 的绘制顺序，每次布局或滑动后调用一次，
+     * [RecyclerCoverFlow.getChildDrawingOrder] 只需要查表
+     */
+    private fun updateDrawingOrder() {
+        tracer.beginSection(CoverFlowTracer.SECTION_DRAW_ORDER)
+        val count = childCount
+        if (mDrawingOrder.size < count) {
+            mDrawingOrder = IntArray(count)
+        }
+        val center = centerPosition
+        for (i in 0 until count) {
+            val child = getChildAt(i)
+            val actualPos = if (child == null) center else checkTag(child.tag)?.pos ?: getPosition(child)
+            mDrawingOrder[i] = computeDrawingOrder(count, i, actualPos, center)
+        }
+        mDrawingOrderCount = count
+        tracer.endSection()
+    }
+
+    /**
+     * 获取第 i 个 child 的绘制顺序
+     * @param childCount RecyclerView 中 child 的个数
+     * @param i child 在 RecyclerView 中的位置
+     * @return 有 View 正在执行动画等原因导致 child 个数与上次计算时不一致时返回 -1
+     */
+    fun getDrawingOrder(childCount: Int, i: Int): Int {
+        if (childCount != mDrawingOrderCount || i < 0 || i >= childCount) return -1
+        return mDrawingOrder[i]
+    }
+
+    /**
+     * 计算绘制顺序：中间 item 左边的按顺序绘制，右边的（包括中间 item）颠倒顺序绘制，使中间的 item 绘制在最上面
+     * @param childCount child 的个数
+     * @param i child 的位置
+     * @param actualPos child 的实际位置，见 [getChildActualPos]
+     * @param center 中间位置
+     */
+    fun computeDrawingOrder(childCount: Int, i: Int, actualPos: Int, center: Int): Int {
+        // 距离中间item的间隔数
+        val dist = actualPos - center
+        var order = if (dist < 0) { // [< 0] 说明 item 位于中间 item 左边，按循序绘制即可
+            i
+        } else { // [>= 0] 说明 item 位于中间 item 右边，需要将顺序颠倒绘制
+            childCount - 1 - dist
+        }
+        if (order < 0) order = 0 else if (order > childCount - 1) order = childCount - 1
+        return order
+    }
+
     /**
      * 该方法主要用于[RecyclerCoverFlow.getChildDrawingOrder]判断中间位置，主要是获取相对centerPosition的位置
      * @param index child 在 RecyclerCoverFlow 中的位置
@@ -737,9 +1115,7 @@ class CoverFlowLayoutManger3(
             val tag = checkTag(child.tag)
             tag!!.pos
         } else {
-            val position = getPosition(child)
-            Log.i(TAG, " getPosition, index: $index , position: $position")
-            position
+            getPosition(child)
         }
     }
 
@@ -748,7 +1124,7 @@ class CoverFlowLayoutManger3(
      */
     val maxVisibleCount: Int
         get() {
-            val oneSide = (horizontalSpace - mStartX) / intervalDistance
+            val oneSide = (mainSpace - mStartX) / intervalDistance
             return oneSide * 2 + 1
         }
 
@@ -761,13 +1137,7 @@ class CoverFlowLayoutManger3(
      */
     val centerPosition: Int
         get() {
-            var pos = mOffsetAll / intervalDistance
-            val more = mOffsetAll % intervalDistance
-            if (abs(more) >= intervalDistance * 0.5f) {
-                if (more >= 0) pos++ else pos--
-            }
-   //         Log.i(TAG, " centerPosition, mOffsetAll: $mOffsetAll, more: $more, intervalDistance: $intervalDistance, pos: $pos ")
-            return pos
+            return mGeometry.centerPosition(mOffsetAll)
         }
 
     /**
@@ -778,10 +1148,41 @@ class CoverFlowLayoutManger3(
         mSelectedListener = l
     }
 
+    /**
+     * 从窗口移除时是否将所有 child 回收到 RecycledViewPool
+     *
+     * 嵌套在纵向列表中、多个卡片列表共享同一个 RecycledViewPool 时开启，外层列表回收该行后，
+     * 卡片 View 可以直接被其他行复用，不需要重新创建
+     */
+    var recycleChildrenOnDetach = false
+
+    /**是否在 [onDetachedFromWindow] 中回收了所有 child，重新 attach 时需要重新布局 */
+    private var mChildrenRecycledOnDetach = false
+
     override fun onAttachedToWindow(view: RecyclerView?) {
         super.onAttachedToWindow(view)
+        recyclerView = view
     //    view?.onFlingListener = null
     //    snapHelper?.attachToRecyclerView(view)
+        if (mChildrenRecycledOnDetach) {
+            mChildrenRecycledOnDetach = false
+            requestLayout()
+        }
+    }
+
+    override fun onDetachedFromWindow(view: RecyclerView?, recycler: RecyclerView.Recycler?) {
+        super.onDetachedFromWindow(view, recycler)
+        if (recycleChildrenOnDetach && recycler != null && childCount > 0) {
+            mStats.viewsRecycled += childCount
+            removeAndRecycleAllViews(recycler)
+            recycler.clear()
+            attachedPositions.clear()
+            mGeometry.resetAttachedRange()
+            mChildrenRecycledOnDetach = true
+            if (enableLog) {
+                Log.i(TAG, " onDetachedFromWindow, recycle all children")
+            }
+        }
     }
 
     /**
@@ -798,6 +1199,70 @@ class CoverFlowLayoutManger3(
     }
 
     inner class TAG internal constructor(var pos: Int)
+
+    /**
+     * 配置变化或者进程被回收时保存的滚动状态
+     */
+    class SavedState() : Parcelable {
+        /**滑动总偏移量 */
+        var offset = 0L
+
+        /**保存时的Item间隔 */
+        var intervalDistance = 0
+
+        /**保存时的Item个数 */
+        var itemCount = 0
+
+        /**保存时是否为循环模式 */
+        var isLoop = false
+
+        /**显示在中间的Item位置，循环模式下可能为负值或者超过 itemCount */
+        var centerPosition = 0
+
+        /**显示在中间的Item在 adapter 中的位置 */
+        var adapterPosition = 0
+
+        internal constructor(other: SavedState) : this() {
+            offset = other.offset
+            intervalDistance = other.intervalDistance
+            itemCount = other.itemCount
+            isLoop = other.isLoop
+            centerPosition = other.centerPosition
+            adapterPosition = other.adapterPosition
+        }
+
+        internal constructor(parcel: Parcel) : this() {
+            offset = parcel.readLong()
+            intervalDistance = parcel.readInt()
+            itemCount = parcel.readInt()
+            isLoop = parcel.readInt() == 1
+            centerPosition = parcel.readInt()
+            adapterPosition = parcel.readInt()
+        }
+
+        override fun writeToParcel(dest: Parcel, flags: Int) {
+            dest.writeLong(offset)
+            dest.writeInt(intervalDistance)
+            dest.writeInt(itemCount)
+            dest.writeInt(if (isLoop) 1 else 0)
+            dest.writeInt(centerPosition)
+            dest.writeInt(adapterPosition)
+        }
+
+        override fun describeContents(): Int {
+            return 0
+        }
+
+        companion object CREATOR : Parcelable.Creator<SavedState> {
+            override fun createFromParcel(parcel: Parcel): SavedState {
+                return SavedState(parcel)
+            }
+
+            override fun newArray(size: Int): Array<SavedState?> {
+                return arrayOfNulls(size)
+            }
+        }
+    }
     internal class Builder {
         var isFlat = false
         var isGreyItem = false
@@ -805,6 +1270,13 @@ class CoverFlowLayoutManger3(
         var cstIntervalRatio = -1f
         var isLoop = false
         var is3DItem = false
+        var initialPrefetchItemCount = DEFAULT_INITIAL_PREFETCH_ITEM_COUNT
+        var tracer = CoverFlowTracer.NONE
+        var isVariableItemWidth = false
+        var orientation = RecyclerView.HORIZONTAL
+        var recycleChildrenOnDetach = false
+        var cacheDepth = CardLayerCache.DISABLED
+        val itemTransformers = ArrayList<ItemTransformer<CoverFlowGeometry>>()
         fun setFlat(flat: Boolean): Builder {
             isFlat = flat
             return this
@@ -835,11 +1307,56 @@ class CoverFlowLayoutManger3(
             return this
         }
 
+        fun setInitialPrefetchItemCount(count: Int): Builder {
+            initialPrefetchItemCount = count
+            return this
+        }
+
+        fun addItemTransformer(transformer: ItemTransformer<CoverFlowGeometry>): Builder {
+            itemTransformers.add(transformer)
+            return this
+        }
+
+        fun setTracer(tracer: CoverFlowTracer): Builder {
+            this.tracer = tracer
+            return this
+        }
+
+        fun setVariableItemWidth(variable: Boolean): Builder {
+            isVariableItemWidth = variable
+            return this
+        }
+
+        fun setOrientation(orientation: Int): Builder {
+            this.orientation = orientation
+            return this
+        }
+
+        fun setRecycleChildrenOnDetach(recycle: Boolean): Builder {
+            recycleChildrenOnDetach = recycle
+            return this
+        }
+
+        fun setCacheDepth(depth: Int): Builder {
+            cacheDepth = depth
+            return this
+        }
+
         fun build(): CoverFlowLayoutManger3 {
-            return CoverFlowLayoutManger3(
+            val manager = CoverFlowLayoutManger3(
                 isFlat, isGreyItem,
                 isAlphaItem, cstIntervalRatio, isLoop, is3DItem
             )
+            manager.initialPrefetchItemCount = initialPrefetchItemCount
+            manager.tracer = tracer
+            manager.isVariableItemWidth = isVariableItemWidth
+            manager.orientation = orientation
+            manager.recycleChildrenOnDetach = recycleChildrenOnDetach
+            manager.cacheDepth = cacheDepth
+            for (transformer in itemTransformers) {
+                manager.addItemTransformer(transformer)
+            }
+            return manager
         }
     }
 
@@ -851,6 +1368,9 @@ class CoverFlowLayoutManger3(
         private const val SCROLL_TO_LEFT = 2
 
         private const val MAX_COUNT = 5
+
+        /**默认初始化时预取的 Item 个数 */
+        const val DEFAULT_INITIAL_PREFETCH_ITEM_COUNT = 2
         /**
          * 最大存储item信息存储数量，
          * 超过设置数量，则动态计算来获取
@@ -0,0 +1,76 @@
+package recycler.coverflow
+
+import android.content.Context
+import android.view.View
+import android.view.animation.DecelerateInterpolator
+import androidx.recyclerview.widget.RecyclerView
+import kotlin.math.abs
+import kotlin.math.ceil
+
+/**
+ * [CoverFlowLayoutManger3] 滚动到指定偏移量使用的 SmoothScroller
+ *
+ * 滚动由 RecyclerView 的 ViewFlinger 驱动，通过 scrollHorizontallyBy 更新偏移量，
+ * 因此 scrollState、嵌套滚动以及 GapWorker 预取都能感知到这次滚动。
+ * 循环模式下同一个 adapter 位置可能对应多个 Item，所以不依赖目标 View，
+ * 只在第一帧按剩余距离发起一次滚动
+ */
+internal class CoverFlowSmoothScroller(
+    context: Context,
+    private val layoutManager: CoverFlowLayoutManger3,
+    private val targetOffset: Long
+) : RecyclerView.SmoothScroller() {
+
+    private val millisPerPx = MILLISECONDS_PER_INCH / context.resources.displayMetrics.densityDpi
+
+    private val interpolator = DecelerateInterpolator()
+
+    /**是否已经发起滚动 */
+    private var started = false
+
+    override fun onStart() {}
+
+    override fun onStop() {}
+
+    override fun onSeekTargetStep(dx: Int, dy: Int, state: RecyclerView.State, action: Action) {
+        scrollToTarget(action)
+    }
+
+    override fun onTargetFound(targetView: View, state: RecyclerView.State, action: Action) {
+        scrollToTarget(action)
+    }
+
+    private fun scrollToTarget(action: Action) {
+        if (started) return
+        started = true
+        val dx = (targetOffset - layoutManager.mOffsetAll).toInt()
+        if (dx == 0) {
+            // 不会进入 SETTLING，也就不会收到 SCROLL_STATE_IDLE
+            layoutManager.onSettleSkipped()
+            stop()
+            return
+        }
+        val time = calculateTimeForScrolling(abs(dx))
+        if (layoutManager.isVertical) {
+            action.update(0, dx, time, interpolator)
+        } else {
+            action.update(dx, 0, time, interpolator)
+        }
+    }
+
+    /**
+     * 计算滚动 [dx] 像素需要的时间，最长不超过 [MAX_SCROLL_DURATION]
+     */
+    fun calculateTimeForScrolling(dx: Int): Int {
+        val time = ceil(dx * millisPerPx).toInt()
+        return if (time < 1) 1 else if (time > MAX_SCROLL_DURATION) MAX_SCROLL_DURATION else time
+    }
+
+    companion object {
+        /**滚动一英寸需要的毫秒数 */
+        private const val MILLISECONDS_PER_INCH = 400f
+
+        /**最长滚动时间，毫秒 */
+        const val MAX_SCROLL_DURATION = 500
+    }
+}
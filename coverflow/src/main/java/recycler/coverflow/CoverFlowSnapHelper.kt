@@ -6,37 +6,70 @@ import androidx.recyclerview.widget.PagerSnapHelper
 import androidx.recyclerview.widget.RecyclerView
 import androidx.recyclerview.widget.SnapHelper
 import recycler.stacklayout.StackLayoutManager
+import kotlin.math.abs
 
 class CoverFlowSnapHelper: SnapHelper() {
 
     private var realScrollPos = 0
-    private var enableLog = true
+    private var enableLog = false
 
     private var enableLoop = true
 
+    private var recyclerView: RecyclerView? = null
+
+    /**
+     * 一次惯性滑动最多越过的 Item 个数
+     */
+    var maxCardsPerFling = DEFAULT_MAX_CARDS_PER_FLING
+
+    fun setEnableLog(enableLog: Boolean) {
+        this.enableLog = enableLog
+    }
+
+    override fun attachToRecyclerView(recyclerView: RecyclerView?) {
+        super.attachToRecyclerView(recyclerView)
+        this.recyclerView = recyclerView
+    }
+
+    /**
+     * 根据速度估算惯性滑动的距离，直接平滑滚动到对应的 Item，一次滑动可以越过多个 Item；
+     * 循环模式下可以越过首尾
+     */
+    override fun onFling(velocityX: Int, velocityY: Int): Boolean {
+        val recyclerView = recyclerView ?: return false
+        val layoutManager = recyclerView.layoutManager as? CoverFlowLayoutManger3 ?: return false
+        val velocity = if (layoutManager.isVertical) velocityY else velocityX
+        if (layoutManager.itemCount == 0 || abs(velocity) < recyclerView.minFlingVelocity) {
+            return false
+        }
+        val distance = flingDistance(layoutManager, velocityX, velocityY)
+        val target = layoutManager.findFlingTargetPosition(distance, maxCardsPerFling)
+        if (enableLog) {
+            Log.i(TAG, " snapHelper onFling, velocity: $velocity, distance: $distance, target: $target")
+        }
+        layoutManager.flingToPosition(target)
+        return true
+    }
+
     override fun calculateDistanceToFinalSnap(
         layoutManager: RecyclerView.LayoutManager,
         targetView: View
     ): IntArray? {
         if (layoutManager is CoverFlowLayoutManger3) {
             val out = IntArray(2)
-            var pos = -1
-            if (layoutManager.canScrollHorizontally()) {
-                pos = layoutManager.getPosition(targetView)
-                if (enableLoop) {
-                    pos = realScrollPos
-                }
-                out[0] = layoutManager.calculateOffsetForPosition(
-                    pos
-                )
-            } else {
-                out[0] = 0
+            var pos = layoutManager.getPosition(targetView)
+            if (enableLoop) {
+                pos = realScrollPos
             }
-            out[1] = 0
+            val distance = (layoutManager.calculateOffsetForPosition(
+                pos
+            ) - layoutManager.mOffsetAll).toInt()
+            // 纵向时距离在 Y 轴上
+            out[if (layoutManager.isVertical) 1 else 0] = distance
             if (enableLog) {
                 Log.i(
                     StackLayoutManager.TAG,
-                    " snapHelper calculateDistanceToFinalSnap, out[0]: " + out[0] + ", pos: " + pos
+                    " snapHelper calculateDistanceToFinalSnap, distance: " + distance + ", pos: " + pos
                 )
             }
             return out
@@ -65,10 +98,12 @@ class CoverFlowSnapHelper: SnapHelper() {
             }
             if (pos != RecyclerView.NO_POSITION) {
                 val snapView = layoutManager.findViewByPosition(realPos)
-                Log.i(
-                    StackLayoutManager.TAG,
-                    " snapHelper findSnapView, snapView null ? " + (snapView == null)
-                )
+                if (enableLog) {
+                    Log.i(
+                        StackLayoutManager.TAG,
+                        " snapHelper findSnapView, snapView null ? " + (snapView == null)
+                    )
+                }
                 return snapView
             }
         }
@@ -80,10 +115,29 @@ class CoverFlowSnapHelper: SnapHelper() {
         velocityX: Int,
         velocityY: Int
     ): Int {
-        return RecyclerView.NO_POSITION
+        if (layoutManager !is CoverFlowLayoutManger3 || layoutManager.itemCount == 0) {
+            return RecyclerView.NO_POSITION
+        }
+        val distance = flingDistance(layoutManager, velocityX, velocityY)
+        var target = layoutManager.findFlingTargetPosition(distance, maxCardsPerFling) % layoutManager.itemCount
+        if (target < 0) {
+            target += layoutManager.itemCount
+        }
+        return target
+    }
+
+    /**
+     * 根据速度估算滚动方向上的惯性滑动距离
+     */
+    private fun flingDistance(layoutManager: CoverFlowLayoutManger3, velocityX: Int, velocityY: Int): Int {
+        val distances = calculateScrollDistance(velocityX, velocityY)
+        return if (layoutManager.isVertical) distances[1] else distances[0]
     }
 
     companion object {
         const val TAG = "CoverFlow_" + "SnapHelper"
+
+        /**默认一次惯性滑动最多越过的 Item 个数 */
+        const val DEFAULT_MAX_CARDS_PER_FLING = 5
     }
 }
\ No newline at end of file
@@ -0,0 +1,163 @@
+package recycler.coverflow
+
+/**
+ * 布局器运行时的统计数据，可以上报到自己的监控系统，找出绑定过于频繁的轮播
+ *
+ * 通过 [CoverFlowLayoutManger3.stats]、[RecyclerCoverFlow.stats] 或
+ * [recycler.stacklayout.StackLayoutManager.stats] 获取的是快照，不会随之后的布局变化
+ */
+class CoverFlowStats {
+    /**真正执行布局（onLayoutChildren）的次数 */
+    var layoutPasses = 0L
+        internal set
+
+    /**滑动（手势滑动及滚动动画）时执行布局的次数 */
+    var scrollPasses = 0L
+        internal set
+
+    /**滑动时因为 attach 的 Item 发生变化而请求重新布局的次数 */
+    var layoutRequests = 0L
+        internal set
+
+    /**调用 Recycler.getViewForPosition 的次数 */
+    var viewsRequested = 0L
+        internal set
+
+    /**添加到 RecyclerView 中的 View 个数 */
+    var viewsAdded = 0L
+        internal set
+
+    /**回收的 View 个数 */
+    var viewsRecycled = 0L
+        internal set
+
+    /**布局（layoutItems / onLayout）累计耗时，纳秒 */
+    var layoutTimeNanos = 0L
+        internal set
+
+    /**单次布局最大耗时，纳秒 */
+    var maxLayoutTimeNanos = 0L
+        internal set
+
+    /**平滑滚动（SmoothScroller）的帧数 */
+    var animatorFrames = 0L
+        internal set
+
+    /**选中回调的次数 */
+    var selectionCallbacks = 0L
+        internal set
+
+    /**布局时 Item 使用绘制缓存的次数，见 [CoverFlowLayoutManger3.cacheDepth] */
+    var cachedItemLayouts = 0L
+        internal set
+
+    /**绘制（dispatchDraw）的次数，只有 [RecyclerCoverFlow] 会统计 */
+    var drawPasses = 0L
+        internal set
+
+    /**绘制（dispatchDraw）累计耗时，纳秒，开启硬件加速时为记录绘制命令的耗时 */
+    var drawTimeNanos = 0L
+        internal set
+
+    /**开启遮挡裁剪后，Item 原本需要绘制的面积之和，像素 */
+    var itemDrawArea = 0L
+        internal set
+
+    /**被之后绘制的 Item 遮挡、裁剪掉没有绘制的面积之和，像素，与 [itemDrawArea] 的比例即减少的过度绘制 */
+    var culledItemArea = 0L
+        internal set
+
+    /**被部分遮挡、裁剪后绘制的 Item 次数 */
+    var clippedItemDraws = 0L
+        internal set
+
+    /**被完全遮挡、跳过绘制的 Item 次数 */
+    var culledItemDraws = 0L
+        internal set
+
+    /**从 layer（绘制缓存或灰度）绘制的 Item 次数，只有 [RecyclerCoverFlow] 会统计 */
+    var cachedItemDraws = 0L
+        internal set
+
+    /**从 layer 绘制 Item 的累计耗时，纳秒，与 [cachedItemDraws] 相除即每个 Item 的平均耗时 */
+    var cachedItemDrawTimeNanos = 0L
+        internal set
+
+    /**直接绘制 View 树的 Item 次数，只有 [RecyclerCoverFlow] 会统计 */
+    var uncachedItemDraws = 0L
+        internal set
+
+    /**直接绘制 Item 的累计耗时，纳秒，与 [cachedItemDrawTimeNanos] 的平均值对比即绘制缓存的收益 */
+    var uncachedItemDrawTimeNanos = 0L
+        internal set
+
+    internal fun recordLayoutTime(nanos: Long) {
+        layoutTimeNanos += nanos
+        if (nanos > maxLayoutTimeNanos) maxLayoutTimeNanos = nanos
+    }
+
+    /**
+     * 复制一份当前的统计数据
+     */
+    fun snapshot(): CoverFlowStats {
+        val copy = CoverFlowStats()
+        copy.layoutPasses = layoutPasses
+        copy.scrollPasses = scrollPasses
+        copy.layoutRequests = layoutRequests
+        copy.viewsRequested = viewsRequested
+        copy.viewsAdded = viewsAdded
+        copy.viewsRecycled = viewsRecycled
+        copy.layoutTimeNanos = layoutTimeNanos
+        copy.maxLayoutTimeNanos = maxLayoutTimeNanos
+        copy.animatorFrames = animatorFrames
+        copy.selectionCallbacks = selectionCallbacks
+        copy.cachedItemLayouts = cachedItemLayouts
+        copy.drawPasses = drawPasses
+        copy.drawTimeNanos = drawTimeNanos
+        copy.itemDrawArea = itemDrawArea
+        copy.culledItemArea = culledItemArea
+        copy.clippedItemDraws = clippedItemDraws
+        copy.culledItemDraws = culledItemDraws
+        copy.cachedItemDraws = cachedItemDraws
+        copy.cachedItemDrawTimeNanos = cachedItemDrawTimeNanos
+        copy.uncachedItemDraws = uncachedItemDraws
+        copy.uncachedItemDrawTimeNanos = uncachedItemDrawTimeNanos
+        return copy
+    }
+
+    internal fun reset() {
+        layoutPasses = 0
+        scrollPasses = 0
+        layoutRequests = 0
+        viewsRequested = 0
+        viewsAdded = 0
+        viewsRecycled = 0
+        layoutTimeNanos = 0
+        maxLayoutTimeNanos = 0
+        animatorFrames = 0
+        selectionCallbacks = 0
+        cachedItemLayouts = 0
+        drawPasses = 0
+        drawTimeNanos = 0
+        itemDrawArea = 0
+        culledItemArea = 0
+        clippedItemDraws = 0
+        culledItemDraws = 0
+        cachedItemDraws = 0
+        cachedItemDrawTimeNanos = 0
+        uncachedItemDraws = 0
+        uncachedItemDrawTimeNanos = 0
+    }
+
+    override fun toString(): String {
+        return "CoverFlowStats(layoutPasses=$layoutPasses, scrollPasses=$scrollPasses, " +
+                "layoutRequests=$layoutRequests, viewsRequested=$viewsRequested, viewsAdded=$viewsAdded, " +
+                "viewsRecycled=$viewsRecycled, layoutTimeNanos=$layoutTimeNanos, " +
+                "maxLayoutTimeNanos=$maxLayoutTimeNanos, animatorFrames=$animatorFrames, " +
+                "selectionCallbacks=$selectionCallbacks, cachedItemLayouts=$cachedItemLayouts, " +
+                "drawPasses=$drawPasses, drawTimeNanos=$drawTimeNanos, itemDrawArea=$itemDrawArea, " +
+                "culledItemArea=$culledItemArea, clippedItemDraws=$clippedItemDraws, culledItemDraws=$culledItemDraws, " +
+                "cachedItemDraws=$cachedItemDraws, cachedItemDrawTimeNanos=$cachedItemDrawTimeNanos, " +
+                "uncachedItemDraws=$uncachedItemDraws, uncachedItemDrawTimeNanos=$uncachedItemDrawTimeNanos)"
+    }
+}
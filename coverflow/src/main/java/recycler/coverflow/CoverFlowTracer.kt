@@ -0,0 +1,57 @@
+package recycler.coverflow
+
+import androidx.core.os.TraceCompat
+
+/**
+ * 布局器关键阶段的跟踪接口，用于在线上包中分析性能
+ *
+ * 每一帧都会调用，实现中不要分配对象；section 名称都是常量，调用方不会拼接字符串
+ */
+interface CoverFlowTracer {
+    /**
+     * 开始一个阶段，必须和 [endSection] 成对调用
+     * @param name 阶段名称，见 [SECTION_LAYOUT] 等常量
+     */
+    fun beginSection(name: String)
+
+    fun endSection()
+
+    companion object {
+        /**布局（onLayoutChildren）*/
+        const val SECTION_LAYOUT = "CoverFlow:layout"
+
+        /**滑动时的布局 */
+        const val SECTION_SCROLL = "CoverFlow:scroll"
+
+        /**创建或绑定 Item */
+        const val SECTION_BIND = "CoverFlow:bind"
+
+        /**计算绘制顺序 */
+        const val SECTION_DRAW_ORDER = "CoverFlow:drawOrder"
+
+        /**层叠布局 */
+        const val SECTION_STACK_LAYOUT = "StackLayout:layout"
+
+        /**层叠布局创建、绑定并布局 Item */
+        const val SECTION_STACK_BIND = "StackLayout:bind"
+
+        /**默认实现，什么都不做 */
+        val NONE: CoverFlowTracer = object : CoverFlowTracer {
+            override fun beginSection(name: String) {}
+            override fun endSection() {}
+        }
+    }
+}
+
+/**
+ * 使用 android.os.Trace 输出各阶段，可以在 systrace / Perfetto 中查看
+ */
+class SystraceCoverFlowTracer : CoverFlowTracer {
+    override fun beginSection(name: String) {
+        TraceCompat.beginSection(name)
+    }
+
+    override fun endSection() {
+        TraceCompat.endSection()
+    }
+}
@@ -0,0 +1,78 @@
+package recycler.coverflow
+
+import android.graphics.ColorMatrix
+import android.graphics.ColorMatrixColorFilter
+import android.graphics.Paint
+import android.os.Build
+import android.view.View
+import kotlin.math.roundToInt
+
+/**
+ * Item灰度渐变使用的 Paint 缓存
+ *
+ * 灰度值被量化为 [LEVELS] 级，每一级的 Paint 只在第一次使用时创建，之后滑动不再分配对象；
+ * 只有在有无灰度之间切换时才改变 View 的 layer 类型，灰度级变化时只更新 layer 的 Paint
+ */
+internal class GreyPaintCache {
+    private val paints = arrayOfNulls<Paint>(LEVELS)
+
+    /**
+     * 将灰度值量化为灰度级
+     * @param value 灰度值，0..1，1 为原色
+     */
+    fun levelOf(value: Float): Int {
+        val level = (value * (LEVELS - 1)).roundToInt()
+        return if (level < 0) 0 else if (level > LEVELS - 1) LEVELS - 1 else level
+    }
+
+    fun paintOf(level: Int): Paint {
+        var paint = paints[level]
+        if (paint == null) {
+            val value = level * 1f / (LEVELS - 1)
+            val cm = ColorMatrix(
+                floatArrayOf(
+                    value, 0f, 0f, 0f, 120 * (1 - value),
+                    0f, value, 0f, 0f, 120 * (1 - value),
+                    0f, 0f, value, 0f, 120 * (1 - value),
+                    0f, 0f, 0f, 1f, 250 * (1 - value)
+                )
+            )
+            paint = Paint()
+            paint.colorFilter = ColorMatrixColorFilter(cm)
+            paints[level] = paint
+        }
+        return paint
+    }
+
+    /**
+     * 将灰度应用到 View 上
+     * @param child 需要设置灰度值的Item
+     * @param value 灰度值
+     * @param currentLevel View 当前的灰度级，没有灰度时为 [NO_GREY]
+     * @return View 新的灰度级
+     */
+    fun apply(child: View, value: Float, currentLevel: Int): Int {
+        var level = levelOf(value)
+        if (level == LEVELS - 1) level = NO_GREY
+        if (level == currentLevel) return level
+        if (level == NO_GREY) {
+            // Remove the hardware layer
+            child.setLayerType(View.LAYER_TYPE_NONE, null)
+        } else if (currentLevel == NO_GREY || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            // Create a hardware layer with the grey paint
+            child.setLayerType(View.LAYER_TYPE_HARDWARE, paintOf(level))
+        } else {
+            // 已有 layer 时只更新 Paint，不重建 layer
+            child.setLayerPaint(paintOf(level))
+        }
+        return level
+    }
+
+    companion object {
+        /**量化的灰度级数 */
+        const val LEVELS = 64
+
+        /**没有灰度，View 没有设置 layer */
+        const val NO_GREY = -1
+    }
+}
@@ -0,0 +1,92 @@
+package recycler.coverflow
+
+import android.view.View
+import androidx.recyclerview.widget.RecyclerView
+import recycler.coverflow.geometry.ItemLayoutResult
+import recycler.coverflow.geometry.ItemTransformer
+
+/**
+ * 将 [ItemLayoutResult] 计算出的布局结果应用到 itemView 上，[CoverFlowLayoutManger3] 与
+ * [recycler.stacklayout.StackLayoutManager] 共用
+ *
+ * 只应用 [ItemLayoutResult.properties] 中的属性，且只在值变化时才设置；View 的灰度级保存在
+ * View 的 tag（[R.id.coverflow_grey_level]）中，随 View 一起复用
+ *
+ * @param stats 记录使用绘制缓存的次数
+ */
+internal class ItemViewApplier(private val stats: CoverFlowStats) {
+    /**灰度渐变使用的 Paint 缓存 */
+    private val greyPaintCache = GreyPaintCache()
+
+    /**
+     * 布局 itemView，坐标不包括 ItemDecoration 的偏移
+     * @param offsetOnly 为 true 时如果 itemView 大小没变，只平移，避免 itemView 及其子 View 重新 layout
+     */
+    fun layout(
+        layoutManager: RecyclerView.LayoutManager, child: View,
+        left: Int, top: Int, right: Int, bottom: Int, offsetOnly: Boolean
+    ) {
+        val oldLeft = layoutManager.getDecoratedLeft(child)
+        val oldTop = layoutManager.getDecoratedTop(child)
+        if (offsetOnly && layoutManager.getDecoratedRight(child) - oldLeft == right - left &&
+            layoutManager.getDecoratedBottom(child) - oldTop == bottom - top) {
+            if (left != oldLeft) child.offsetLeftAndRight(left - oldLeft)
+            if (top != oldTop) child.offsetTopAndBottom(top - oldTop)
+        } else {
+            layoutManager.layoutDecorated(child, left, top, right, bottom)
+        }
+    }
+
+    /**
+     * 应用第 [slot] 个 Item 的缩放、半透、灰度、旋转
+     * @param vertical 纵向布局时 Y 轴旋转应用为 X 轴旋转
+     */
+    fun applyProperties(child: View, result: ItemLayoutResult<*>, slot: Int, vertical: Boolean) {
+        val properties = result.properties
+        if (properties and ItemTransformer.PROPERTY_SCALE != 0) {
+            val scale = result.scales[slot]
+            if (child.scaleX != scale) child.scaleX = scale
+            if (child.scaleY != scale) child.scaleY = scale
+        }
+        if (properties and ItemTransformer.PROPERTY_ALPHA != 0) {
+            val alpha = result.alphas[slot]
+            if (child.alpha != alpha) child.alpha = alpha
+        }
+        if (properties and ItemTransformer.PROPERTY_GREY != 0) {
+            val level = greyPaintCache.apply(child, result.greys[slot], greyLevelOf(child))
+            child.setTag(R.id.coverflow_grey_level, level) //-1..63 装箱时使用 Integer 缓存，不分配对象
+        }
+        if (properties and ItemTransformer.PROPERTY_ROTATION_Y != 0) {
+            val rotation = result.rotations[slot]
+            if (vertical) {
+                // 绕 X 轴旋转时正方向相反，取反后上方的 Item 与横向时左边的 Item 倾斜方向一致
+                if (child.rotationX != -rotation) child.rotationX = -rotation
+            } else {
+                if (child.rotationY != rotation) child.rotationY = rotation
+            }
+        }
+    }
+
+    /**
+     * 按 Item 的深度设置或移除绘制缓存，见 [CardLayerCache]；不缓存时不修改 layer，
+     * 关闭缓存时由布局器统一移除
+     * @param depth Item 的深度，中间（最顶部）为 0
+     */
+    fun applyCache(child: View, depth: Int, cacheDepth: Int) {
+        if (cacheDepth == CardLayerCache.DISABLED) return
+        if (CardLayerCache.apply(child, depth, cacheDepth, hasGreyLayer(child))) {
+            stats.cachedItemLayouts++
+        }
+    }
+
+    /**
+     * View 是否因为灰度设置了 layer
+     */
+    fun hasGreyLayer(child: View): Boolean {
+        return greyLevelOf(child) != GreyPaintCache.NO_GREY
+    }
+
+    private fun greyLevelOf(child: View): Int {
+        return child.getTag(R.id.coverflow_grey_level) as Int? ?: GreyPaintCache.NO_GREY
+    }
+}
@@ -1,11 +1,14 @@
 package recycler.coverflow
 
 import android.content.Context
+import android.graphics.Canvas
 import android.util.AttributeSet
-import android.util.Log
 import android.view.MotionEvent
 import android.view.View
 import androidx.recyclerview.widget.RecyclerView
+import recycler.coverflow.geometry.CoverFlowGeometry
+import recycler.coverflow.geometry.ItemTransformer
+import recycler.coverflow.geometry.OcclusionCulling
 import kotlin.math.abs
 
 /**
@@ -17,7 +20,7 @@ import kotlin.math.abs
  */
 class RecyclerCoverFlow : RecyclerView {
     /**
-     * 按下的X轴坐标
+     * 按下的X、Y轴坐标
      */
     private var mDownX = 0f
     private var mDownY = 0f
@@ -27,6 +30,18 @@ class RecyclerCoverFlow : RecyclerView {
      */
     private var mManagerBuilder: CoverFlowLayoutManger3.Builder? = null
 
+    /**是否裁剪被之后绘制的 Item 遮挡的部分，见 [setOcclusionCulling] */
+    private var mOcclusionCulling = false
+
+    /**每一帧绘制前计算的遮挡结果，按绘制顺序索引 */
+    private val mCulling = OcclusionCulling()
+
+    /**child 下标对应的绘制顺序 */
+    private var mChildDrawOrders = IntArray(0)
+
+    /**本次绘制的遮挡结果是否可用，有 View 正在执行动画等情况下绘制顺序不完整，不裁剪 */
+    private var mCullingValid = false
+
     constructor(context: Context?) : super(context!!) {
         init()
     }
@@ -119,38 +134,196 @@ class RecyclerCoverFlow : RecyclerView {
         layoutManager = mManagerBuilder!!.build()
     }
 
+    /**
+     * 设置初始化时预取的Item个数，嵌套在纵向列表中时使用
+     * @param count 预取个数，一般为屏幕上可见的卡片个数
+     */
+    fun setInitialPrefetchItemCount(count: Int) {
+        createManageBuilder()
+        mManagerBuilder!!.setInitialPrefetchItemCount(count)
+        coverFlowLayout?.initialPrefetchItemCount = count
+    }
+
+    /**
+     * 添加自定义的Item效果，与灰度、半透等内置效果叠加
+     * @param transformer 效果插件
+     */
+    fun addItemTransformer(transformer: ItemTransformer<CoverFlowGeometry>) {
+        createManageBuilder()
+        mManagerBuilder!!.addItemTransformer(transformer)
+        coverFlowLayout?.addItemTransformer(transformer)
+    }
+
+    /**
+     * 设置布局各阶段的跟踪，如 [SystraceCoverFlowTracer]
+     */
+    fun setTracer(tracer: CoverFlowTracer) {
+        createManageBuilder()
+        mManagerBuilder!!.setTracer(tracer)
+        coverFlowLayout?.tracer = tracer
+    }
+
+    /**
+     * 设置是否支持宽度不同的Item，开启后Item的宽度由Item自身的LayoutParams决定
+     * @param variable true：每个Item按测量出的宽度布局；false：所有Item宽度相同
+     */
+    fun setVariableItemWidth(variable: Boolean) {
+        createManageBuilder()
+        mManagerBuilder!!.setVariableItemWidth(variable)
+        coverFlowLayout?.isVariableItemWidth = variable
+    }
+
+    /**
+     * 设置滚动方向
+     * @param orientation [RecyclerView.HORIZONTAL] 或 [RecyclerView.VERTICAL]
+     */
+    fun setOrientation(orientation: Int) {
+        createManageBuilder()
+        mManagerBuilder!!.setOrientation(orientation)
+        coverFlowLayout?.orientation = orientation
+    }
+
+    /**
+     * 设置从窗口移除时是否回收所有卡片，嵌套在纵向列表中时与 [shareViewPool] 一起使用
+     */
+    fun setRecycleChildrenOnDetach(recycle: Boolean) {
+        createManageBuilder()
+        mManagerBuilder!!.setRecycleChildrenOnDetach(recycle)
+        coverFlowLayout?.recycleChildrenOnDetach = recycle
+    }
+
+    /**
+     * 嵌套在纵向列表中时，多个卡片列表共享同一个 RecycledViewPool，并在外层列表回收该行时回收所有卡片，
+     * 滑动外层列表时卡片 View 在各行之间复用，不需要重新创建
+     *
+     * 更换数据时使用 [swapAdapter] 并传入 false，保留兼容的 ViewHolder
+     * @param pool 共享的回收池，最大缓存个数需要大于一行可见的卡片个数
+     */
+    fun shareViewPool(pool: RecycledViewPool) {
+        setRecycledViewPool(pool)
+        setRecycleChildrenOnDetach(true)
+    }
+
+    /**
+     * 设置离中间的Item多远的 Item 从绘制缓存绘制，见 [CoverFlowLayoutManger3.cacheDepth]
+     * @param depth 一般为 2，[CardLayerCache.DISABLED] 为不缓存
+     */
+    fun setCacheDepth(depth: Int) {
+        createManageBuilder()
+        mManagerBuilder!!.setCacheDepth(depth)
+        coverFlowLayout?.cacheDepth = depth
+    }
+
+    /**
+     * 设置是否裁剪被遮挡的 Item：根据每个 Item 的位置与缩放计算出被之后绘制的 Item 完全覆盖的部分，
+     * 绘制时裁剪掉，完全被覆盖的 Item 不绘制，减少 Item 重叠时的过度绘制，结果见 [stats]
+     *
+     * 开启的前提是 Item 为不透明的矩形（没有圆角、透明背景等）；半透或者 3D 倾斜的 Item 不会遮挡其他 Item
+     */
+    fun setOcclusionCulling(enabled: Boolean) {
+        if (mOcclusionCulling == enabled) return
+        mOcclusionCulling = enabled
+        invalidate()
+    }
+
     override fun setLayoutManager(layout: LayoutManager?) {
         require(layout is CoverFlowLayoutManger3) { "The layout manager must be CoverFlowLayoutManger3" }
         super.setLayoutManager(layout)
     }
 
-    public override fun getChildDrawingOrder(childCount: Int, i: Int): Int {
+    override fun dispatchDraw(canvas: Canvas) {
+        val startNanos = System.nanoTime()
+        mCullingValid = mOcclusionCulling && computeOcclusion()
+        super.dispatchDraw(canvas)
+        coverFlowLayout?.recordDrawTime(System.nanoTime() - startNanos)
+    }
 
-        if(i == 0) {
-            Log.i(TAG, " --------------------start layout order------------------------------------- ")
+    /**
+     * 按绘制顺序计算每个 child 被之后绘制的 child 遮挡的部分
+     * @return 绘制顺序完整时返回 true
+     */
+    private fun computeOcclusion(): Boolean {
+        val count = childCount
+        if (count == 0) return false
+        if (mChildDrawOrders.size < count) mChildDrawOrders = IntArray(count)
+        mChildDrawOrders.fill(-1, 0, count)
+        mCulling.reset(count)
+        val vertical = coverFlowLayout?.isVertical == true
+        for (order in 0 until count) {
+            val index = getChildDrawingOrder(count, order)
+            if (index < 0 || index >= count || mChildDrawOrders[index] >= 0) return false
+            mChildDrawOrders[index] = order
+            val child = getChildAt(index)
+            // 缩放以 pivot 为中心
+            val left = child.left + child.translationX + child.pivotX * (1 - child.scaleX)
+            val right = left + child.width * child.scaleX
+            val top = child.top + child.translationY + child.pivotY * (1 - child.scaleY)
+            val bottom = top + child.height * child.scaleY
+            val opaque = child.visibility == View.VISIBLE && child.alpha >= 1f &&
+                    child.animation == null && !isRotated(child)
+            if (vertical) {
+                mCulling.setItem(order, top, bottom, left, right, opaque)
+            } else {
+                mCulling.setItem(order, left, right, top, bottom, opaque)
+            }
         }
+        mCulling.compute()
+        return true
+    }
 
-        val center = coverFlowLayout!!.centerPosition
-        // 获取 RecyclerView 中第 i 个 子 view 的实际位置
-        val actualPos = coverFlowLayout!!.getChildActualPos(i)
-
-        val adapterCenterPos = coverFlowLayout!!.mActualPosition2AdapterPosition.get(center, -10000)
-        val adapterPos = coverFlowLayout!!.mActualPosition2AdapterPosition.get(actualPos, -10000)
-        // 距离中间item的间隔数
-        val dist = actualPos - center
-        var order: Int
-        order = if (dist < 0) { // [< 0] 说明 item 位于中间 item 左边，按循序绘制即可
-            i
-        } else { // [>= 0] 说明 item 位于中间 item 右边，需要将顺序颠倒绘制
-            childCount - 1 - dist
+    /**
+     * 旋转后的 Item 投影不是矩形，既不遮挡其他 Item，自身也不裁剪
+     */
+    private fun isRotated(child: View): Boolean {
+        return child.rotation != 0f || child.rotationX != 0f || child.rotationY != 0f
+    }
+
+    override fun drawChild(canvas: Canvas, child: View, drawingTime: Long): Boolean {
+        if (!mCullingValid || isRotated(child)) return drawChildTimed(canvas, child, drawingTime)
+        val index = indexOfChild(child)
+        if (index < 0 || index >= mCulling.count) return drawChildTimed(canvas, child, drawingTime)
+        val order = mChildDrawOrders[index]
+        coverFlowLayout?.recordItemDraw(mCulling.area(order), mCulling.visibleArea(order))
+        if (mCulling.isCulled(order)) return false
+        if (!mCulling.isClipped(order)) return drawChildTimed(canvas, child, drawingTime)
+        val start = mCulling.visibleStart(order).toFloat()
+        val end = mCulling.visibleEnd(order).toFloat()
+        val saveCount = canvas.save()
+        if (coverFlowLayout?.isVertical == true) {
+            canvas.clipRect(0f, start, width.toFloat(), end)
+        } else {
+            canvas.clipRect(start, 0f, end, height.toFloat())
         }
-        Log.i(TAG, "center: $center, actualPos: $actualPos, childCount: $childCount, order: $order, index: $i, adapterCenterPos: $adapterCenterPos, adapterPos: $adapterPos, offsetAll: ${coverFlowLayout!!.mOffsetAll}, distance: ${coverFlowLayout!!.intervalDistance} ")
-        if (order < 0) order = 0 else if (order > childCount - 1) order = childCount - 1
-        return order
+        val result = drawChildTimed(canvas, child, drawingTime)
+        canvas.restoreToCount(saveCount)
+        return result
     }
 
     /**
-     * 获取LayoutManger，并强制转换为CoverFlowLayoutManger
+     * 绘制 child 并按是否从 layer 绘制分别统计耗时，见 [CoverFlowStats.cachedItemDrawTimeNanos]；
+     * 被完全遮挡、跳过绘制的 Item 不统计
+     */
+    private fun drawChildTimed(canvas: Canvas, child: View, drawingTime: Long): Boolean {
+        val startNanos = System.nanoTime()
+        val result = super.drawChild(canvas, child, drawingTime)
+        coverFlowLayout?.recordItemDrawTime(child.layerType != View.LAYER_TYPE_NONE, System.nanoTime() - startNanos)
+        return result
+    }
+
+    public override fun getChildDrawingOrder(childCount: Int, i: Int): Int {
+        val layout = coverFlowLayout ?: return i
+        // 绘制顺序由布局器在每次布局或滑动后计算好，这里只需要查表
+        val order = layout.getDrawingOrder(childCount, i)
+        if (order >= 0) return order
+        // 有 View 正在执行动画时 child 个数与布局器中的不一致，单独计算
+        val child = getChildAt(i)
+        val tag = child?.tag
+        val actualPos = if (tag is CoverFlowLayoutManger3.TAG) tag.pos else getChildLayoutPosition(child!!)
+        return layout.computeDrawingOrder(childCount, i, actualPos, layout.centerPosition)
+    }
+
+    /**
+     * 获取LayoutManger，并强制转换为CoverFlowLayoutManger3
      */
     val coverFlowLayout: CoverFlowLayoutManger3?
         get() = layoutManager as CoverFlowLayoutManger3?
@@ -161,6 +334,21 @@ class RecyclerCoverFlow : RecyclerView {
     val selectedPos: Int
         get() = coverFlowLayout!!.selectedPos
 
+    /**
+     * 获取布局器统计数据的快照，见 [CoverFlowStats]
+     *
+     * Note: 调用 [setLoop] 等方法会重新创建布局器，统计数据也会重新开始
+     */
+    val stats: CoverFlowStats?
+        get() = coverFlowLayout?.stats
+
+    /**
+     * 重置统计数据
+     */
+    fun resetStats() {
+        coverFlowLayout?.resetStats()
+    }
+
     /**
      * 设置选中监听
      * @param l 监听接口
@@ -176,18 +364,24 @@ class RecyclerCoverFlow : RecyclerView {
                 mDownY = ev.y
                 parent.requestDisallowInterceptTouchEvent(true) //设置父类不拦截滑动事件
             }
-            MotionEvent.ACTION_MOVE -> if (ev.x > mDownX && coverFlowLayout!!.centerPosition == 0 ||
-                ev.x < mDownX && coverFlowLayout!!.centerPosition ==
-                coverFlowLayout!!.itemCount - 1
-            ) {
-                //如果是滑动到了最前和最后，开放父类滑动事件拦截
-                parent.requestDisallowInterceptTouchEvent(false)
-            } else {
-                //滑动到中间，设置父类不拦截滑动事件
-                if (abs(ev.x - mDownX) > abs(ev.y - mDownY)) {
-                    parent.requestDisallowInterceptTouchEvent(true)
-                } else {
+            MotionEvent.ACTION_MOVE -> {
+                // 纵向时按 Y 轴判断滑动方向
+                val vertical = coverFlowLayout!!.isVertical
+                val delta = if (vertical) ev.y - mDownY else ev.x - mDownX
+                val crossDelta = if (vertical) ev.x - mDownX else ev.y - mDownY
+                if (delta > 0 && coverFlowLayout!!.centerPosition == 0 ||
+                    delta < 0 && coverFlowLayout!!.centerPosition ==
+                    coverFlowLayout!!.itemCount - 1
+                ) {
+                    //如果是滑动到了最前和最后，开放父类滑动事件拦截
                     parent.requestDisallowInterceptTouchEvent(false)
+                } else {
+                    //滑动到中间，设置父类不拦截滑动事件
+                    if (abs(delta) > abs(crossDelta)) {
+                        parent.requestDisallowInterceptTouchEvent(true)
+                    } else {
+                        parent.requestDisallowInterceptTouchEvent(false)
+                    }
                 }
             }
         }
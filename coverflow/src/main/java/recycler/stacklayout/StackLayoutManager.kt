@@ -1,11 +1,20 @@
 package recycler.stacklayout
 
+import android.os.Parcel
+import android.os.Parcelable
 import android.util.Log
 import android.view.View
 import android.view.ViewGroup
+import androidx.core.view.ViewCompat
 import androidx.recyclerview.widget.RecyclerView
 import androidx.recyclerview.widget.RecyclerView.Recycler
-import java.util.*
+import recycler.coverflow.CardLayerCache
+import recycler.coverflow.CoverFlowStats
+import recycler.coverflow.CoverFlowTracer
+import recycler.coverflow.ItemViewApplier
+import recycler.coverflow.geometry.ItemTransformer
+import recycler.stacklayout.geometry.StackDepthCurve
+import recycler.stacklayout.geometry.StackGeometry
 
 class StackLayoutManager : RecyclerView.LayoutManager {
 
@@ -20,23 +29,106 @@ class StackLayoutManager : RecyclerView.LayoutManager {
             = 0
     var hasInit //初始化参数
             = false
-    var itemWidth = 0
-    var itemHeight = 0
+    var itemWidth = 0 //滚动方向上的长度，纵向时为 itemView 的高
+    var itemHeight = 0 //与滚动方向垂直的长度，纵向时为 itemView 的宽
     var currentItemCount = 0
 
+    /**
+     * 滚动方向，[RecyclerView.HORIZONTAL] 或 [RecyclerView.VERTICAL]，
+     * 纵向时卡片沿 Y 轴叠放，缩放、半透及回收、预取与横向相同
+     */
+    var orientation = RecyclerView.HORIZONTAL
+        set(value) {
+            if (value != RecyclerView.HORIZONTAL && value != RecyclerView.VERTICAL) {
+                throw IllegalArgumentException("invalid orientation: $value")
+            }
+            if (value == field) return
+            field = value
+            requestLayout()
+        }
+
+    internal val isVertical: Boolean
+        get() = orientation == RecyclerView.VERTICAL
+
     //循环滚动
     var enableLoop = true
-    private var mItemScrollListeners: MutableList<OnItemScrollListener>? = null
+    /**监听列表，添加、删除时复制新的数组，分发时遍历的是当时的数组，回调中添加、删除监听不影响本次分发 */
+    private var mItemScrollListeners: Array<OnItemScrollListener> = emptyArray()
+
+    /**合并滚动事件的监听列表，同样为写时复制 */
+    private var mScrollEventListeners: Array<OnScrollEventListener> = emptyArray()
+
+    /**当前帧正在合并的事件与正在分发的事件，两个对象交替使用，分发不分配内存 */
+    private var mPendingScrollEvent = StackScrollEvent()
+    private var mDispatchingScrollEvent = StackScrollEvent()
+
+    /**是否已经提交了下一帧的分发 */
+    private var mScrollEventPosted = false
+
+    private val mDispatchScrollEventRunnable = Runnable { dispatchScrollEvent() }
     private var recyclerView: RecyclerView? = null
 
+    /**
+     * 顶部之后每一级 itemView 的缩放、半透曲线，按 [maxCount] 预先计算成查找表，
+     * 层叠的级数不影响每一帧的计算量
+     */
+    var depthCurve: StackDepthCurve = StackDepthCurve.DEFAULT
+
     var scale = floatArrayOf(0.8957f, 0.776f, 0.625f) //前两个是根据视觉算出来的，最后一个视觉没给，自己填的
+        set(value) { //作为关键帧，级数与个数不同时线性插值
+            field = value
+            depthCurve = StackDepthCurve.Keyframes(value, alpha)
+        }
 
     var alpha = floatArrayOf(0.5f, 0.15f, 0.05f)
+        set(value) {
+            field = value
+            depthCurve = StackDepthCurve.Keyframes(scale, value)
+        }
+
+    /**
+     * 第几级及之后的 itemView 从绘制缓存绘制，最顶部为第 0 级，[CardLayerCache.DISABLED] 为不缓存，
+     * 见 [CardLayerCache]
+     */
+    var cacheDepth = CardLayerCache.DISABLED
+        set(value) {
+            require(value >= 0) { "invalid cache depth: $value" }
+            if (value == field) return
+            field = value
+            if (value == CardLayerCache.DISABLED) {
+                for (i in 0 until childCount) {
+                    val child = getChildAt(i) ?: continue
+                    CardLayerCache.apply(child, 0, value, mViewApplier.hasGreyLayer(child))
+                }
+            }
+            requestLayout()
+        }
     var lastTopItemScrollWidth = 0
     var lastSelectedItemPosition = RecyclerView.NO_POSITION
 
     var top2BottomLayoutPosition: IntArray? = null
 
+    /**每个itemView的位置、缩放、半透的计算 */
+    private val mGeometry = StackGeometry()
+
+    /**当前已 attach 的 itemView 对应的最顶部 item 位置，滑动时已 attach 的 itemView 保持 attach，只回收划出的、添加新出现的 itemView */
+    private var mAttachedTopPosition = RecyclerView.NO_POSITION
+
+    /**当前已 attach 的 itemView 个数 */
+    private var mAttachedCount = 0
+
+    /**下一次布局时是否根据 ViewHolder 的位置重新确定每个 child 对应的位置，数据变化后重新布局时使用 */
+    private var mRemapChildren = false
+
+    /**是否在 [onLayoutChildren] 中布局 */
+    private var mInLayoutPass = false
+
+    /**布局时第 i 个 item 对应的已 attach 的 itemView，复用数组，布局后清空 */
+    private var mLayoutViews = arrayOfNulls<View>(1)
+
+    /**等待第一次布局时恢复的状态 */
+    private var mPendingSavedState: SavedState? = null
+
     //是否真正的手动滚动过
     var hasStartScrolled = false
     private var isFirstLayout = true
@@ -52,18 +144,92 @@ class StackLayoutManager : RecyclerView.LayoutManager {
         this.itemSpace = itemSpace
         this.enableLoop = enableLoop
         stackSnapHelper = StackSnapHelper(enableLoop)
-        stackSnapHelper?.setEnableLog(true)
+        stackSnapHelper?.setEnableLog(enableLog)
         this.recyclerView = recyclerView
     }
 
     fun setEnableLog(enableLog: Boolean) {
         this.enableLog = enableLog
+        stackSnapHelper?.setEnableLog(enableLog)
+    }
+
+    /**布局、绑定阶段的跟踪，默认不做任何事 */
+    var tracer: CoverFlowTracer = CoverFlowTracer.NONE
+
+    /**运行时的统计数据 */
+    private val mStats = CoverFlowStats()
+
+    /**将 [mGeometry] 的计算结果应用到 View 上，与 [recycler.coverflow.CoverFlowLayoutManger3] 共用 */
+    private val mViewApplier = ItemViewApplier(mStats)
+
+    /**
+     * 获取统计数据的快照
+     */
+    val stats: CoverFlowStats
+        get() = mStats.snapshot()
+
+    /**
+     * 重置统计数据
+     */
+    fun resetStats() {
+        mStats.reset()
+    }
+
+    /**
+     * 添加自定义的 Item 效果，在层叠的缩放、半透之后执行，见 [ItemTransformer]
+     */
+    fun addItemTransformer(transformer: ItemTransformer<StackGeometry>) {
+        mGeometry.addTransformer(transformer)
+        requestLayout()
+    }
+
+    fun removeItemTransformer(transformer: ItemTransformer<StackGeometry>) {
+        mGeometry.removeTransformer(transformer)
+        requestLayout()
     }
 
     override fun onItemsChanged(recyclerView: RecyclerView) {
         super.onItemsChanged(recyclerView)
     }
 
+    /**
+     * 支持 ItemAnimator 的增删动画：预布局时在数据变化前的位置布局，并补上删除后会出现的 Item，
+     * 正式布局时划出的 Item 作为消失的 View 布局，见 [preLayoutChildren]、[layoutDisappearingViews]
+     */
+    override fun supportsPredictiveItemAnimations(): Boolean {
+        return true
+    }
+
+    /**
+     * 插入 Item 时修正偏移量，保持最顶部的 Item 不变，并更新 Item 个数
+     */
+    override fun onItemsAdded(recyclerView: RecyclerView, positionStart: Int, itemCount: Int) {
+        super.onItemsAdded(recyclerView, positionStart, itemCount)
+        if (!hasInit) return
+        syncGeometry()
+        applyRemappedScrollOffset(mGeometry.scrollOffsetAfterItemsAdded(scrollOffset, positionStart, itemCount))
+    }
+
+    override fun onItemsRemoved(recyclerView: RecyclerView, positionStart: Int, itemCount: Int) {
+        super.onItemsRemoved(recyclerView, positionStart, itemCount)
+        if (!hasInit) return
+        syncGeometry()
+        applyRemappedScrollOffset(mGeometry.scrollOffsetAfterItemsRemoved(scrollOffset, positionStart, itemCount))
+    }
+
+    override fun onItemsMoved(recyclerView: RecyclerView, from: Int, to: Int, itemCount: Int) {
+        super.onItemsMoved(recyclerView, from, to, itemCount)
+        if (!hasInit) return
+        syncGeometry()
+        applyRemappedScrollOffset(mGeometry.scrollOffsetAfterItemMoved(scrollOffset, from, to))
+    }
+
+    private fun applyRemappedScrollOffset(offset: Int) {
+        lastScrollOffset += offset - scrollOffset
+        scrollOffset = offset
+        currentItemCount = mGeometry.itemCount
+    }
+
     fun resetParams() {
         hasStartScrolled = false
         hasInit = false
@@ -114,18 +280,70 @@ class StackLayoutManager : RecyclerView.LayoutManager {
     }
 
     fun addOnItemScrollListener(listener: OnItemScrollListener) {
-        if (mItemScrollListeners == null) {
-            mItemScrollListeners = ArrayList()
-        }
-        mItemScrollListeners!!.add(listener)
+        mItemScrollListeners = mItemScrollListeners + listener
     }
 
     fun removeOnItemScrollListener(listener: OnItemScrollListener) {
-        if (mItemScrollListeners != null) {
-            mItemScrollListeners!!.remove(listener)
+        val listeners = mItemScrollListeners
+        val index = listeners.indexOf(listener)
+        if (index < 0) return
+        mItemScrollListeners = Array(listeners.size - 1) { if (it < index) listeners[it] else listeners[it + 1] }
+    }
+
+    /**
+     * 合并后的滚动事件监听：同一帧内的多次布局合并为一个事件，在下一帧（Choreographer 动画回调）时分发，
+     * 适合视差背景、统计等较重的监听者
+     */
+    interface OnScrollEventListener {
+        /**
+         * @param event 这一帧最后一次布局时的快照，只在回调期间有效
+         */
+        fun onScrollEvent(recyclerView: RecyclerView, event: StackScrollEvent)
+    }
+
+    fun addOnScrollEventListener(listener: OnScrollEventListener) {
+        mScrollEventListeners = mScrollEventListeners + listener
+    }
+
+    fun removeOnScrollEventListener(listener: OnScrollEventListener) {
+        val listeners = mScrollEventListeners
+        val index = listeners.indexOf(listener)
+        if (index < 0) return
+        mScrollEventListeners = Array(listeners.size - 1) { if (it < index) listeners[it] else listeners[it + 1] }
+    }
+
+    /**
+     * 记录一次布局的滚动数据，每一帧第一次记录时提交分发
+     */
+    private fun postScrollEvent(
+        topItemScrollWidth: Int, currentPosition: Int, currentScrollOffset: Int,
+        itemScrollPercent: Float, top2BottomLayoutPosition: IntArray
+    ) {
+        val view = recyclerView ?: return
+        mPendingScrollEvent.merge(
+            topItemScrollWidth, currentPosition, currentScrollOffset, itemScrollPercent, top2BottomLayoutPosition
+        )
+        if (!mScrollEventPosted) {
+            mScrollEventPosted = true
+            ViewCompat.postOnAnimation(view, mDispatchScrollEventRunnable)
         }
     }
 
+    private fun dispatchScrollEvent() {
+        mScrollEventPosted = false
+        val event = mPendingScrollEvent
+        mPendingScrollEvent = mDispatchingScrollEvent
+        mDispatchingScrollEvent = event
+        val view = recyclerView
+        val listeners = mScrollEventListeners
+        if (view != null && event.layoutCount > 0) {
+            for (i in listeners.size - 1 downTo 0) {
+                listeners[i].onScrollEvent(view, event)
+            }
+        }
+        event.reset()
+    }
+
 
     override fun generateDefaultLayoutParams(): RecyclerView.LayoutParams? {
         return RecyclerView.LayoutParams(
@@ -136,15 +354,27 @@ class StackLayoutManager : RecyclerView.LayoutManager {
 
     override fun onLayoutChildren(recycler: Recycler, state: RecyclerView.State) {
         if (state.itemCount == 0) {
+            mStats.viewsRecycled += childCount
             removeAndRecycleAllViews(recycler)
             return
         }
         if (state.isPreLayout) {
+            preLayoutChildren(recycler, state)
             return
         }
         initParams()
+        mRemapChildren = true //数据可能变化，按 ViewHolder 的位置重新确定每个 child 对应的位置
+        val pendingSavedState = mPendingSavedState
+        if (pendingSavedState != null) { //恢复保存的状态，直接在保存的位置布局
+            mPendingSavedState = null
+            scrollOffset = restoredScrollOffset(pendingSavedState)
+            lastScrollOffset = scrollOffset
+        }
         updateScrollOffset(scrollOffset)
+        mStats.layoutPasses++
+        mInLayoutPass = true
         onLayout(recycler, state, 0)
+        mInLayoutPass = false
     }
 
     private fun initParams() {
@@ -178,6 +408,8 @@ class StackLayoutManager : RecyclerView.LayoutManager {
         if (topItemPosition < 0) {
             return
         }
+        tracer.beginSection(CoverFlowTracer.SECTION_STACK_LAYOUT)
+        val startNanos = System.nanoTime()
         var topItemScrollWidth =
             scrollOffset % itemWidth //最顶部那个item当前滑动的距离, 当滑动完的时候scrollOffset正好为itemWidth的倍数，topItemScrollWidth即为0
         if (currentScrollOffset != 0 && !hasStartScrolled) {
@@ -198,103 +430,41 @@ class StackLayoutManager : RecyclerView.LayoutManager {
             }
         }
         lastTopItemScrollWidth = topItemScrollWidth
-        val topItemScrollPercent = topItemScrollWidth * 1.0f / itemWidth //移动的百分比
-        //    float remainPercent = 1 - topItemScrollPercent;  //剩余待移动的百分比
 
         //开始计算每个itemView的位置和缩放比例等数据
-        var left = -1 * topItemScrollWidth //最顶部item滑动缩放不变
-        var scaleXY = 1.0f
-        var itemAlpha = 1.0f
-        val layoutInfos: MutableList<ItemLayoutInfo> = ArrayList()
-        var itemLayoutInfo = ItemLayoutInfo(left, scaleXY)
-        layoutInfos.add(itemLayoutInfo)
-        var lastScaleXY = scaleXY
-        var itemPositionIndex = topItemPosition + 1
-        var lastAlpha = itemAlpha
-        run {
-            var i = 1
-            while (i < maxCount + 1) {
-                if (!enableLoop) {
-                    if (itemPositionIndex >= currentItemCount) {
-                        break
-                    }
-                }
-                val baseItemScale = scale[i - 1]
-                val baseItemSpace = (i - 1) * itemSpace
-                val baseAlpha = alpha[i - 1]
-                val diffScaleXY = lastScaleXY - baseItemScale
-                val diffAlpha = lastAlpha - baseAlpha
-                scaleXY =
-                    baseItemScale + diffScaleXY * topItemScrollPercent //实际缩放的比例，根据第一个item的拖动比例来计算
-                itemAlpha = baseAlpha + diffAlpha * topItemScrollPercent
-                left =
-                    baseItemSpace + (itemSpace * (1 - topItemScrollPercent)).toInt() //如果以往中心缩放来算，X和Y都向中心缩放
-                //     Log.i(TAG, " onLayout , i: " + i + ", scaleItem: " + baseItemScale +  ", scaleXY: " + scaleXY + ", topItemScrollPercent:" + topItemScrollPercent + ",scrollOffset: " + scrollOffset + ",topItemPosition: " + topItemPosition);
-                itemLayoutInfo = ItemLayoutInfo(left, scaleXY)
-                itemLayoutInfo.alpha = itemAlpha
-                layoutInfos.add(itemLayoutInfo)
-                lastScaleXY = baseItemScale
-                lastAlpha = baseAlpha
-                i++
-                itemPositionIndex++
-            }
-        }
-        val layoutCount = layoutInfos.size
+        syncGeometry()
+        val topItemScrollPercent = mGeometry.layout(topItemPosition, topItemScrollWidth) //移动的百分比
+        val layoutCount = mGeometry.count
         //        final int firstInvisiblePos = topItemPosition;
 //        final int lastInvisiblePos = topItemPosition + layoutCount;
         //view回收处理
 
-        //先进行回收
-        detachAndScrapAttachedViews(recycler)
-        //再进行重新布局
-        var childView: View? = null
-        for (i in layoutCount - 1 downTo 0) {
-            val adapterPos = topItemPosition + i
-            var realAdapterPos = adapterPos
-            if (enableLoop && currentItemCount > 0) {
-                realAdapterPos = realAdapterPos % currentItemCount
-            }
-            val stateItemCount = state.itemCount
-            if (realAdapterPos < stateItemCount) {
-                try {
-                    childView = recycler.getViewForPosition(realAdapterPos)
-                    if (childView != null && childView.getMeasuredWidth() != 0) {
-                        if (top2BottomLayoutPosition == null) {
-                            top2BottomLayoutPosition = IntArray(layoutCount)
-                        }
-                    }
-                    if (top2BottomLayoutPosition != null) {
-                        top2BottomLayoutPosition!![i] = realAdapterPos
-                    }
-                    val itemLayoutInfo1 = layoutInfos[i]
-                    layoutChild(childView, itemLayoutInfo1) //从最右往左一个view一个view的加
-                } catch (e: Exception) {
-                    Log.e(TAG, " layout error: ", e)
-                }
-            }
-            if (enableLog) {
-                Log.i(
-                    TAG, " onLayout , layoutChild, i: " + i + ",realAdapterPos: " + realAdapterPos +
-                            ", adapterPos: " + adapterPos + ", currentItemCount: " + currentItemCount + ", stateItemCount: " + stateItemCount
-                            + ",top2BottomPosition: " + Arrays.toString(top2BottomLayoutPosition)
-                )
-            }
+        val remap = mRemapChildren || mAttachedTopPosition == RecyclerView.NO_POSITION || childCount != mAttachedCount
+        mRemapChildren = false
+        layoutChildren(recycler, state, topItemPosition, layoutCount, remap)
+        if (remap) {
+            layoutDisappearingViews(recycler, state, topItemPosition, layoutCount)
         }
-        if (mItemScrollListeners != null && hasStartScrolled && top2BottomLayoutPosition != null) {
+        val listeners = mItemScrollListeners
+        val positions = top2BottomLayoutPosition
+        if ((listeners.isNotEmpty() || mScrollEventListeners.isNotEmpty()) && hasStartScrolled && positions != null) {
             if (enableLoop && currentItemCount > 0) {
                 topItemPosition = topItemPosition % currentItemCount
             }
-            for (i in mItemScrollListeners!!.indices.reversed()) {
-                mItemScrollListeners!![i].onItemScrolled(
+            for (i in listeners.size - 1 downTo 0) {
+                listeners[i].onItemScrolled(
                     recyclerView!!,
                     recycler,
                     topItemScrollWidth,
                     topItemPosition,
                     currentScrollOffset,
                     topItemScrollPercent,
-                    top2BottomLayoutPosition
+                    positions
                 )
             }
+            if (mScrollEventListeners.isNotEmpty()) {
+                postScrollEvent(topItemScrollWidth, topItemPosition, currentScrollOffset, topItemScrollPercent, positions)
+            }
         }
         if (enableLog) {
             Log.i(
@@ -312,6 +482,8 @@ class StackLayoutManager : RecyclerView.LayoutManager {
                 hasStartScrolled = false
             }
         }
+        mStats.recordLayoutTime(System.nanoTime() - startNanos)
+        tracer.endSection()
     }
 
 //    private boolean isFloatEqual(float value,  float compareValue){
@@ -330,23 +502,213 @@ class StackLayoutManager : RecyclerView.LayoutManager {
     //            return false;
     //        }
     //    }
-    private fun layoutChild(view: View, itemLayoutInfo: ItemLayoutInfo) {
-        addView(view)
+    /**
+     * 同步布局参数到 [mGeometry]
+     */
+    private fun syncGeometry() {
+        mGeometry.setMaxCount(maxCount)
+        mGeometry.itemSpace = itemSpace
+        mGeometry.itemWidth = itemWidth
+        mGeometry.itemCount = currentItemCount
+        mGeometry.isLoop = enableLoop
+        mGeometry.depthCurve = depthCurve
+    }
+
+    /**
+     * 位置 [position] 的 item 在 adapter 中的位置
+     */
+    private fun adapterPositionOf(position: Int): Int {
+        return if (enableLoop && currentItemCount > 0) position % currentItemCount else position
+    }
+
+    /**
+     * 按 [mGeometry] 的计算结果布局 itemView
+     *
+     * 已 attach 的 itemView 保持 attach，只更新位置、缩放及半透；划出的 itemView 被回收，有预测动画时
+     * 放回 scrap 作为消失的 View 处理，只为新出现的位置获取 itemView。child 按从最底部到最顶部的顺序排列，
+     * 位置越大下标越小：新的顶部 item 添加在最后面，新的底部 item 添加在最前面
+     *
+     * @param remap 是否根据 ViewHolder 的位置重新确定 child 对应的位置，重新布局（数据可能变化）时为 true；
+     * 滑动时 child 与位置的对应关系不变，直接按 [mAttachedTopPosition] 计算
+     */
+    private fun layoutChildren(
+        recycler: Recycler, state: RecyclerView.State, topItemPosition: Int, layoutCount: Int, remap: Boolean
+    ) {
+        if (mLayoutViews.size < layoutCount) {
+            mLayoutViews = arrayOfNulls(layoutCount)
+        }
+        val views = mLayoutViews
+        //只在 onLayoutChildren 中放回 scrap，剩下的由 RecyclerView 处理；滑动时直接回收
+        val canScrap = mInLayoutPass
+        val predictive = canScrap && state.willRunPredictiveAnimations()
+        val attachedEnd = mAttachedTopPosition + mAttachedCount
+        var lastIndex = layoutCount
+        var i = 0
+        while (i < childCount) {
+            val child = getChildAt(i) ?: break
+            val lp = child.layoutParams as RecyclerView.LayoutParams
+            //被删除、内容变化或者失效的 itemView 交给 RecyclerView 处理动画或者重新绑定
+            val stale = remap && (lp.isItemRemoved || lp.isItemChanged || lp.isViewInvalid)
+            val index = when {
+                stale -> RecyclerView.NO_POSITION
+                remap -> indexOfAdapterPosition(lp.viewLayoutPosition, topItemPosition)
+                else -> attachedEnd - 1 - i - topItemPosition
+            }
+            if (!stale && index in 0 until lastIndex && views[index] == null) {
+                views[index] = child
+                lastIndex = index
+                i++
+            } else if (canScrap && (stale || index in 0 until layoutCount || predictive)) {
+                //顺序不对（移动了 item）或者循环模式下重复的位置放回 scrap，按位置获取时直接取回，不需要重新绑定；
+                //有预测动画时划出的 itemView 也放回 scrap，作为消失的 View 布局
+                detachAndScrapViewAt(i, recycler)
+            } else {
+                removeAndRecycleViewAt(i, recycler)
+                mStats.viewsRecycled++
+            }
+        }
+        val stateItemCount = state.itemCount
+        val positions = top2BottomPositions(layoutCount)
+        var addedCount = 0
+        for (index in layoutCount - 1 downTo 0) {
+            val adapterPosition = adapterPositionOf(topItemPosition + index)
+            positions[index] = adapterPosition
+            val view = views[index]
+            if (view != null) {
+                views[index] = null
+                applyChildLayout(view, index, true)
+            } else if (adapterPosition < stateItemCount) {
+                tracer.beginSection(CoverFlowTracer.SECTION_STACK_BIND)
+                val child = recycler.getViewForPosition(adapterPosition)
+                mStats.viewsRequested++
+                tracer.endSection()
+                layoutChild(child, index, addedCount)
+                if (enableLog) {
+                    Log.i(TAG, " layoutChildren, addChild index: $index, adapterPosition: $adapterPosition")
+                }
+            } else {
+                continue
+            }
+            addedCount++
+        }
+        //有 item 没有添加时 child 与位置对应不上，下次布局时根据 ViewHolder 的位置重新确定
+        mAttachedTopPosition = if (addedCount == layoutCount) topItemPosition else RecyclerView.NO_POSITION
+        mAttachedCount = addedCount
+    }
+
+    /**
+     * adapter 位置为 [adapterPosition] 的 item 在 [mGeometry] 计算结果中的下标，循环模式下取最顶部之后最近的一个
+     * @return 在最顶部之前时返回负值
+     */
+    private fun indexOfAdapterPosition(adapterPosition: Int, topItemPosition: Int): Int {
+        if (!enableLoop || currentItemCount <= 0) return adapterPosition - topItemPosition
+        var index = (adapterPosition - adapterPositionOf(topItemPosition)) % currentItemCount
+        if (index < 0) index += currentItemCount
+        return index
+    }
+
+    /**
+     * 预布局：已 attach 的 itemView（包括被删除的）保持在数据变化前的位置；被删除的 item 空出的位置会由
+     * 后面的 item 补上，在最底部之后补充布局被删除个数的 item，叠放在最底部，作为出现动画的起点
+     */
+    private fun preLayoutChildren(recycler: Recycler, state: RecyclerView.State) {
+        val topItemPosition = mAttachedTopPosition
+        if (topItemPosition == RecyclerView.NO_POSITION || mAttachedCount == 0 || childCount != mAttachedCount) return
+        var removedCount = 0
+        for (i in 0 until childCount) {
+            val lp = getChildAt(i)?.layoutParams as RecyclerView.LayoutParams? ?: continue
+            if (lp.isItemRemoved) removedCount++
+        }
+        val bottomIndex = mAttachedCount - 1
+        val stateItemCount = state.itemCount
+        for (i in 1..removedCount) {
+            val position = topItemPosition + bottomIndex + i
+            if (!enableLoop && position >= stateItemCount) break
+            val view = recycler.getViewForPosition(adapterPositionOf(position))
+            mStats.viewsRequested++
+            layoutChild(view, bottomIndex, 0)
+        }
+    }
+
+    /**
+     * 有预测动画时，布局后 scrap 中剩下的没有被删除的 itemView 为划出的 item，作为消失的 View 添加：
+     * 划出最顶部的向外平移一个 item 的距离，划出最底部的叠放在最底部，由 ItemAnimator 执行移出的动画
+     */
+    private fun layoutDisappearingViews(
+        recycler: Recycler, state: RecyclerView.State, topItemPosition: Int, layoutCount: Int
+    ) {
+        if (!mInLayoutPass || !state.willRunPredictiveAnimations() || layoutCount == 0) return
+        val scrapList = recycler.scrapList
+        if (scrapList.isEmpty()) return
+        //addDisappearingView 会将 View 移出 scrap，先复制一份
+        val holders = ArrayList(scrapList)
+        for (holder in holders) {
+            val view = holder.itemView
+            val lp = view.layoutParams as RecyclerView.LayoutParams
+            if (lp.isItemRemoved) continue //被删除的 item 由 RecyclerView 执行删除动画
+            addDisappearingView(view, 0)
+            val index = indexOfAdapterPosition(lp.viewLayoutPosition, topItemPosition)
+            if (index < 0) {
+                applyChildLayout(view, 0, true)
+                if (isVertical) view.offsetTopAndBottom(-itemWidth) else view.offsetLeftAndRight(-itemWidth)
+            } else {
+                applyChildLayout(view, Math.min(index, layoutCount - 1), true)
+            }
+        }
+    }
+
+    /**
+     * [layoutCount] 个 item 使用的 [top2BottomLayoutPosition]，个数变化时重新分配
+     */
+    private fun top2BottomPositions(layoutCount: Int): IntArray {
+        var positions = top2BottomLayoutPosition
+        if (positions == null || positions.size != layoutCount) {
+            positions = IntArray(layoutCount)
+            top2BottomLayoutPosition = positions
+        }
+        return positions
+    }
+
+    /**
+     * @param index 在 [mGeometry] 计算结果中的下标
+     */
+    private fun layoutChild(view: View, index: Int, childIndex: Int = -1) {
+        addView(view, childIndex)
+        mStats.viewsAdded++
         measureChildWithExactlySize(view)
-        val scaleItem = itemLayoutInfo.scaleXY
-        val scaleWidth = (itemWidth * scaleItem).toInt() //缩放之后的宽度
-        //    int scaleHeight = (int)(itemHeight * scaleItem); //缩放之后的高度
-        val scaledWidth = itemWidth - scaleWidth //宽度被缩放了多少
-        //    int scaledHeight = itemHeight - scaleHeight; //高度被缩放了多少
-        val left = scaledWidth / 2 + itemLayoutInfo.left
-        val top = paddingTop
-        val right = left + itemWidth
-        val bottom = top + itemHeight
-        //再layout
-        layoutDecoratedWithMargins(view, left, top, right, bottom)
-        view.scaleX = scaleItem
-        view.scaleY = scaleItem
-        view.alpha = itemLayoutInfo.alpha
+        applyChildLayout(view, index, false)
+    }
+
+    /**
+     * 布局 itemView 并设置缩放、半透，只在值变化时才设置
+     * @param index 在 [mGeometry] 计算结果中的下标
+     * @param offsetOnly 为 true 时如果 itemView 大小没变，只平移，不重新 layout
+     */
+    private fun applyChildLayout(view: View, index: Int, offsetOnly: Boolean) {
+        val vertical = isVertical
+        val left: Int
+        val top: Int
+        val right: Int
+        val bottom: Int
+        if (vertical) { //纵向时沿 Y 轴叠放
+            left = paddingLeft + mGeometry.tops[index]
+            top = mGeometry.scaledLeft(index)
+            right = left + itemHeight
+            bottom = top + itemWidth
+        } else {
+            left = mGeometry.scaledLeft(index)
+            top = paddingTop + mGeometry.tops[index]
+            right = left + itemWidth
+            bottom = top + itemHeight
+        }
+        //传入的坐标包括 margin
+        val lp = view.layoutParams as RecyclerView.LayoutParams
+        mViewApplier.layout(
+            this, view, left + lp.leftMargin, top + lp.topMargin,
+            right - lp.rightMargin, bottom - lp.bottomMargin, offsetOnly
+        )
+        mViewApplier.applyProperties(view, mGeometry, index, vertical)
+        mViewApplier.applyCache(view, index, cacheDepth)
     }
 
     private fun relayout(recycler: Recycler, state: RecyclerView.State, realScrollOffset: Int) {
@@ -362,8 +724,22 @@ class StackLayoutManager : RecyclerView.LayoutManager {
         return targetPos * itemWidth - scrollOffset
     }
 
+    /**
+     * 惯性滑动时需要停留的最顶部 Item 位置
+     * @param flingDistance 根据速度估算出的惯性滑动距离
+     * @param maxCards 一次惯性滑动最多越过的 Item 个数
+     */
+    fun findFlingTargetPosition(flingDistance: Int, maxCards: Int): Int {
+        if (!checkItemReady()) {
+            return RecyclerView.NO_POSITION
+        }
+        syncGeometry()
+        return mGeometry.flingTargetPosition(scrollOffset, flingDistance, maxCards)
+    }
+
     override fun onAttachedToWindow(view: RecyclerView) {
         super.onAttachedToWindow(view)
+        recyclerView = view
         view.onFlingListener = null
         stackSnapHelper?.attachToRecyclerView(view)
     }
@@ -373,11 +749,23 @@ class StackLayoutManager : RecyclerView.LayoutManager {
     }
 
     override fun scrollHorizontallyBy(dx: Int, recycler: Recycler, state: RecyclerView.State): Int {
-        // 手指从右向左滑动，dx > 0; 手指从左向右滑动，dx < 0;
+        return scrollBy(dx, recycler, state)
+    }
+
+    override fun scrollVerticallyBy(dy: Int, recycler: Recycler, state: RecyclerView.State): Int {
+        return scrollBy(dy, recycler, state)
+    }
+
+    /**
+     * 沿滚动方向滑动
+     * @param dx 横向时手指从右向左滑动，dx > 0; 手指从左向右滑动，dx < 0; 纵向时手指从下向上滑动，dx > 0
+     */
+    private fun scrollBy(dx: Int, recycler: Recycler, state: RecyclerView.State): Int {
         val pendingScrollOffset = scrollOffset + dx
         val originalScrollOffset = scrollOffset
         updateScrollOffset(pendingScrollOffset)
         val realOffset = originalScrollOffset - scrollOffset
+        mStats.scrollPasses++
         relayout(recycler, state, realOffset)
         return realOffset //返回实际滑动了多少距离
     }
@@ -395,18 +783,20 @@ class StackLayoutManager : RecyclerView.LayoutManager {
         if (itemWidth > 0) {
             offset = scrollOffset % itemWidth
         }
-        if (mItemScrollListeners != null) {
+        val listeners = mItemScrollListeners
+        if (listeners.isNotEmpty()) {
             if (enableLoop && currentItemCount > 0) {
                 topItemPosition = topItemPosition % currentItemCount
             }
             var realState = state
-            for (i in mItemScrollListeners!!.indices.reversed()) {
+            for (i in listeners.size - 1 downTo 0) {
                 if (realState == RecyclerView.SCROLL_STATE_IDLE && offset != 0) {
                     realState = RecyclerView.SCROLL_STATE_SETTLING
                 }
-                mItemScrollListeners!![i].onItemScrollStateChanged(realState, topItemPosition)
+                listeners[i].onItemScrollStateChanged(realState, topItemPosition)
                 if (offset == 0 && state == RecyclerView.SCROLL_STATE_IDLE && realPosition != lastSelectedItemPosition) {
-                    mItemScrollListeners!![i].onItemSelected(realPosition, top2BottomLayoutPosition)
+                    listeners[i].onItemSelected(realPosition, top2BottomLayoutPosition)
+                    mStats.selectionCallbacks++
                     lastSelectedItemPosition = realPosition
                     if (enableLog) {
                         Log.i(
@@ -429,43 +819,192 @@ class StackLayoutManager : RecyclerView.LayoutManager {
             realPosition = topItemPosition % currentItemCount
         }
         if (lastSelectedItemPosition != realPosition && isFirstLayout && top2BottomLayoutPosition != null) {
-            if (mItemScrollListeners != null) {
-                for (i in mItemScrollListeners!!.indices.reversed()) {
-                    mItemScrollListeners!![i].onItemSelected(realPosition, top2BottomLayoutPosition)
+            val listeners = mItemScrollListeners
+            if (listeners.isNotEmpty()) {
+                for (i in listeners.size - 1 downTo 0) {
+                    listeners[i].onItemSelected(realPosition, top2BottomLayoutPosition)
                 }
+                mStats.selectionCallbacks++
             }
             lastSelectedItemPosition = realPosition
             isFirstLayout = false
         }
-        Log.i(
-            TAG,
-            " onScrollStateChanged onLayoutCompleted: topItemPosition:  $topItemPosition,realPosition: $realPosition"
-        )
+        if (enableLog) {
+            Log.i(
+                TAG,
+                " onScrollStateChanged onLayoutCompleted: topItemPosition:  $topItemPosition,realPosition: $realPosition"
+            )
+        }
     }
 
     override fun scrollToPosition(position: Int) { //adapter position
         if (position >= 0 && position < currentItemCount) {
+            mPendingSavedState = null
             scrollOffset = itemWidth * position
             requestLayout()
         }
     }
 
+    /**
+     * 初始化时预取的 Item 个数，嵌套在其他 RecyclerView 中时使用
+     */
+    var initialPrefetchItemCount = 2
+
+    /**
+     * 滑动时预取滑动方向上即将出现的 Item
+     */
+    override fun collectAdjacentPrefetchPositions(
+        dx: Int, dy: Int, state: RecyclerView.State,
+        layoutPrefetchRegistry: LayoutPrefetchRegistry
+    ) {
+        val delta = if (isVertical) dy else dx
+        if (delta == 0 || !hasInit || itemWidth == 0 || currentItemCount == 0) return
+        val topItemPosition = scrollOffset / itemWidth
+        val topItemScrollWidth = scrollOffset % itemWidth
+        val position: Int
+        val distance: Int
+        if (delta > 0) { //最顶部的 item 划出后，最底部会出现一个新的 item
+            position = topItemPosition + maxCount + 1
+            distance = itemWidth - topItemScrollWidth
+        } else { //向右滑动，上一个 item 会回到最顶部
+            position = topItemPosition - 1
+            distance = topItemScrollWidth
+        }
+        if (position < 0 || (!enableLoop && position >= currentItemCount)) return
+        layoutPrefetchRegistry.addPosition(position % currentItemCount, Math.max(distance - Math.abs(delta), 0))
+    }
+
+    override fun collectInitialPrefetchPositions(
+        adapterItemCount: Int,
+        layoutPrefetchRegistry: LayoutPrefetchRegistry
+    ) {
+        if (adapterItemCount <= 0) return
+        val topItemPosition = if (itemWidth > 0) scrollOffset / itemWidth else 0
+        val count = Math.min(initialPrefetchItemCount, adapterItemCount)
+        for (i in 0 until count) {
+            var position = topItemPosition + i
+            if (enableLoop) {
+                position %= adapterItemCount
+            } else if (position >= adapterItemCount) {
+                break
+            }
+            layoutPrefetchRegistry.addPosition(position, 0)
+        }
+    }
+
+    override fun onSaveInstanceState(): Parcelable? {
+        mPendingSavedState?.let { //还没有布局过，保存的状态还没有使用
+            return SavedState(it)
+        }
+        val state = SavedState()
+        state.scrollOffset = scrollOffset
+        state.itemWidth = itemWidth
+        state.itemCount = currentItemCount
+        state.isLoop = enableLoop
+        state.topItemPosition = if (itemWidth > 0) scrollOffset / itemWidth else 0
+        return state
+    }
+
+    override fun onRestoreInstanceState(state: Parcelable?) {
+        if (state is SavedState) {
+            mPendingSavedState = state
+            requestLayout()
+        }
+    }
+
+    /**
+     * 计算恢复后的偏移量：Item 宽度、个数、循环模式都没有变化时恢复原来的偏移量，否则滚动到原来最顶部的 Item
+     */
+    private fun restoredScrollOffset(state: SavedState): Int {
+        if (state.itemWidth == itemWidth && state.itemCount == currentItemCount && state.isLoop == enableLoop) {
+            return state.scrollOffset
+        }
+        var position = state.topItemPosition
+        if (currentItemCount > 0) {
+            position %= currentItemCount
+        }
+        return position * itemWidth
+    }
+
+    /**
+     * 配置变化或者进程被回收时保存的滚动状态
+     */
+    class SavedState() : Parcelable {
+        /**向左滑动的总距离 */
+        var scrollOffset = 0
+
+        /**保存时的Item宽 */
+        var itemWidth = 0
+
+        /**保存时的Item个数 */
+        var itemCount = 0
+
+        /**保存时是否为循环模式 */
+        var isLoop = false
+
+        /**最顶部的Item位置，循环模式下可能超过 itemCount */
+        var topItemPosition = 0
+
+        internal constructor(other: SavedState) : this() {
+            scrollOffset = other.scrollOffset
+            itemWidth = other.itemWidth
+            itemCount = other.itemCount
+            isLoop = other.isLoop
+            topItemPosition = other.topItemPosition
+        }
+
+        internal constructor(parcel: Parcel) : this() {
+            scrollOffset = parcel.readInt()
+            itemWidth = parcel.readInt()
+            itemCount = parcel.readInt()
+            isLoop = parcel.readInt() == 1
+            topItemPosition = parcel.readInt()
+        }
+
+        override fun writeToParcel(dest: Parcel, flags: Int) {
+            dest.writeInt(scrollOffset)
+            dest.writeInt(itemWidth)
+            dest.writeInt(itemCount)
+            dest.writeInt(if (isLoop) 1 else 0)
+            dest.writeInt(topItemPosition)
+        }
+
+        override fun describeContents(): Int {
+            return 0
+        }
+
+        companion object CREATOR : Parcelable.Creator<SavedState> {
+            override fun createFromParcel(parcel: Parcel): SavedState {
+                return SavedState(parcel)
+            }
+
+            override fun newArray(size: Int): Array<SavedState?> {
+                return arrayOfNulls(size)
+            }
+        }
+    }
+
     override fun canScrollHorizontally(): Boolean {
-        return if (currentItemCount == 1) {
+        return if (currentItemCount == 1 || isVertical) {
             false
         } else {
             true
         }
     }
 
+    override fun canScrollVertically(): Boolean {
+        return currentItemCount != 1 && isVertical
+    }
+
     private fun measureChildWithExactlySize(child: View) {
         val lp = child.layoutParams as RecyclerView.LayoutParams
-        val widthSpec = View.MeasureSpec.makeMeasureSpec(
-            itemWidth - lp.leftMargin - lp.rightMargin, View.MeasureSpec.EXACTLY
-        )
-        val heightSpec = View.MeasureSpec.makeMeasureSpec(
-            itemWidth - lp.topMargin - lp.bottomMargin, View.MeasureSpec.EXACTLY
-        )
+        val width = itemWidth - lp.leftMargin - lp.rightMargin
+        val height = itemWidth - lp.topMargin - lp.bottomMargin
+        if (!child.isLayoutRequested && child.measuredWidth == width && child.measuredHeight == height) {
+            return //大小没变且没有请求重新布局，跳过测量
+        }
+        val widthSpec = View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY)
+        val heightSpec = View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY)
         child.measure(widthSpec, heightSpec)
     }
 
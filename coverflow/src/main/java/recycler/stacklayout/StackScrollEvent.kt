@@ -0,0 +1,68 @@
+package recycler.stacklayout
+
+/**
+ * [StackLayoutManager] 合并后的滚动事件，同一帧内的多次布局只分发一次，数据为这一帧最后一次布局时的快照
+ *
+ * 事件对象由 [StackLayoutManager] 复用，只在 [StackLayoutManager.OnScrollEventListener.onScrollEvent]
+ * 回调期间有效，需要保存时复制其中的数据
+ */
+class StackScrollEvent internal constructor() {
+    /**最顶部 item 当前滑动的距离 */
+    var topItemScrollWidth = 0
+        private set
+
+    /**最顶部 item 在 adapter 中的位置 */
+    var currentPosition = 0
+        private set
+
+    /**这一帧内跟随手势实际滚动的距离之和，带方向，从右向左 < 0, 从左向右 > 0 */
+    var scrollDelta = 0
+        private set
+
+    /**最顶部 item 滑动的百分比 */
+    var itemScrollPercent = 0f
+        private set
+
+    /**这一帧内合并的布局次数 */
+    var layoutCount = 0
+        private set
+
+    private var positions = IntArray(0)
+
+    /**从最顶部到最底部显示的 item 个数 */
+    var positionCount = 0
+        private set
+
+    /**
+     * 从最顶部开始第 [index] 个 item 在 adapter 中的位置
+     */
+    fun positionAt(index: Int): Int {
+        if (index < 0 || index >= positionCount) throw IndexOutOfBoundsException("index: $index, count: $positionCount")
+        return positions[index]
+    }
+
+    /**
+     * 合并一次布局的数据，滚动距离累加，其他数据取最后一次
+     */
+    internal fun merge(
+        topItemScrollWidth: Int, currentPosition: Int, currentScrollOffset: Int,
+        itemScrollPercent: Float, top2BottomLayoutPosition: IntArray
+    ) {
+        this.topItemScrollWidth = topItemScrollWidth
+        this.currentPosition = currentPosition
+        this.scrollDelta += currentScrollOffset
+        this.itemScrollPercent = itemScrollPercent
+        layoutCount++
+        if (positions.size < top2BottomLayoutPosition.size) {
+            positions = IntArray(top2BottomLayoutPosition.size)
+        }
+        System.arraycopy(top2BottomLayoutPosition, 0, positions, 0, top2BottomLayoutPosition.size)
+        positionCount = top2BottomLayoutPosition.size
+    }
+
+    internal fun reset() {
+        scrollDelta = 0
+        layoutCount = 0
+        positionCount = 0
+    }
+}
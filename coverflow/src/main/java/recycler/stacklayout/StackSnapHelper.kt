@@ -4,6 +4,7 @@ import android.util.Log
 import android.view.View
 import androidx.recyclerview.widget.RecyclerView
 import androidx.recyclerview.widget.SnapHelper
+import kotlin.math.abs
 
 class StackSnapHelper: SnapHelper {
     private var enableLog = false
@@ -11,6 +12,13 @@ class StackSnapHelper: SnapHelper {
     private var enableLoop = false
     private var realScrollPos = 0
 
+    private var recyclerView: RecyclerView? = null
+
+    /**
+     * 一次惯性滑动最多越过的 Item 个数
+     */
+    var maxCardsPerFling = DEFAULT_MAX_CARDS_PER_FLING
+
     constructor(enableLoop: Boolean) {
         this.enableLoop = enableLoop
     }
@@ -19,6 +27,39 @@ class StackSnapHelper: SnapHelper {
         this.enableLog = enableLog
     }
 
+    override fun attachToRecyclerView(recyclerView: RecyclerView?) {
+        super.attachToRecyclerView(recyclerView)
+        this.recyclerView = recyclerView
+    }
+
+    /**
+     * 根据速度估算惯性滑动的距离，直接平滑滚动到对应的 Item，一次滑动可以越过多个 Item
+     */
+    override fun onFling(velocityX: Int, velocityY: Int): Boolean {
+        val recyclerView = recyclerView ?: return false
+        val layoutManager = recyclerView.layoutManager as? StackLayoutManager ?: return false
+        val velocity = if (layoutManager.isVertical) velocityY else velocityX
+        if (abs(velocity) < recyclerView.minFlingVelocity) {
+            return false
+        }
+        val target = findTargetSnapPosition(layoutManager, velocityX, velocityY)
+        if (target == RecyclerView.NO_POSITION) {
+            return false
+        }
+        val dx = layoutManager.calculateDistanceToPosition(target)
+        if (enableLog) {
+            Log.i(StackLayoutManager.TAG, " snapHelper onFling, velocity: $velocity, target: $target, dx: $dx")
+        }
+        if (dx != 0) {
+            if (layoutManager.isVertical) {
+                recyclerView.smoothScrollBy(0, dx)
+            } else {
+                recyclerView.smoothScrollBy(dx, 0)
+            }
+        }
+        return true
+    }
+
     override fun calculateDistanceToFinalSnap(
         layoutManager: RecyclerView.LayoutManager,
         targetView: View
@@ -26,22 +67,20 @@ class StackSnapHelper: SnapHelper {
         if (layoutManager is StackLayoutManager) {
             val out = IntArray(2)
             var pos = -1
-            if (layoutManager.canScrollHorizontally()) {
+            if (layoutManager.canScrollHorizontally() || layoutManager.canScrollVertically()) {
                 pos = layoutManager.getPosition(targetView)
                 if (enableLoop) {
                     pos = realScrollPos
                 }
-                out[0] = layoutManager.calculateDistanceToPosition(
+                // 纵向时距离在 Y 轴上
+                out[if (layoutManager.isVertical) 1 else 0] = layoutManager.calculateDistanceToPosition(
                     pos
                 )
-            } else {
-                out[0] = 0
             }
-            out[1] = 0
             if (enableLog) {
                 Log.i(
                     StackLayoutManager.TAG,
-                    " snapHelper calculateDistanceToFinalSnap, out[0]: " + out[0] + ", pos: " + pos
+                    " snapHelper calculateDistanceToFinalSnap, out: " + out[0] + ", " + out[1] + ", pos: " + pos
                 )
             }
             return out
@@ -67,10 +106,12 @@ class StackSnapHelper: SnapHelper {
             }
             if (pos != RecyclerView.NO_POSITION) {
                 val snapView = layoutManager.findViewByPosition(realPos)
-                Log.i(
-                    StackLayoutManager.TAG,
-                    " snapHelper findSnapView, snapView null ? " + (snapView == null)
-                )
+                if (enableLog) {
+                    Log.i(
+                        StackLayoutManager.TAG,
+                        " snapHelper findSnapView, snapView null ? " + (snapView == null)
+                    )
+                }
                 return snapView
             }
         }
@@ -82,6 +123,17 @@ class StackSnapHelper: SnapHelper {
         velocityX: Int,
         velocityY: Int
     ): Int {
-        return RecyclerView.NO_POSITION
+        if (layoutManager !is StackLayoutManager ||
+            !(layoutManager.canScrollHorizontally() || layoutManager.canScrollVertically())) {
+            return RecyclerView.NO_POSITION
+        }
+        val distances = calculateScrollDistance(velocityX, velocityY)
+        val distance = if (layoutManager.isVertical) distances[1] else distances[0]
+        return layoutManager.findFlingTargetPosition(distance, maxCardsPerFling)
+    }
+
+    companion object {
+        /**默认一次惯性滑动最多越过的 Item 个数 */
+        const val DEFAULT_MAX_CARDS_PER_FLING = 5
     }
 }
\ No newline at end of file